@@ -0,0 +1,92 @@
+package dev.folomkin.instrumentation;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики по методам-обработчикам: гистограмма задержки (наносекунды, от ~1 мкс до ~69 с),
+ * гистограмма выделенной за запрос памяти (байты, от 1 КБ до 1 ТБ) и число ошибок.
+ * Ряд - метод-обработчик, HTTP-метод и шаблон пути: перегруженные обработчики не сливаются.
+ * Отдаются в текстовом формате Prometheus.
+ */
+public class HandlerMetrics {
+
+    static final int LATENCY_MIN_EXPONENT = 10;
+    static final int LATENCY_BUCKETS = 27;
+    static final int ALLOCATION_MIN_EXPONENT = 10;
+    static final int ALLOCATION_BUCKETS = 31;
+
+    public static final class Handler {
+        final PowerOfTwoHistogram latency = new PowerOfTwoHistogram(LATENCY_MIN_EXPONENT, LATENCY_BUCKETS);
+        final PowerOfTwoHistogram allocation = new PowerOfTwoHistogram(ALLOCATION_MIN_EXPONENT, ALLOCATION_BUCKETS);
+        final LongAdder errors = new LongAdder();
+
+        public void record(long nanos, long allocatedBytes, boolean error) {
+            latency.record(nanos);
+            // -1: счётчик выделений недоступен (виртуальный поток, запрос сменил поток)
+            if (allocatedBytes >= 0) {
+                allocation.record(allocatedBytes);
+            }
+            if (error) {
+                errors.increment();
+            }
+        }
+    }
+
+    private final Map<String, Handler> handlers = new ConcurrentHashMap<>();
+
+    public Handler handler(String name, String method, String route) {
+        String labels = "handler=\"" + escape(name) + "\",method=\"" + escape(method)
+                + "\",route=\"" + escape(route) + "\"";
+        Handler handler = handlers.get(labels);
+        return handler != null ? handler : handlers.computeIfAbsent(labels, key -> new Handler());
+    }
+
+    private static String escape(String value) {
+        return value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public void writePrometheus(Writer writer) throws IOException {
+        Map<String, Handler> snapshot = new TreeMap<>(handlers);
+        writer.write("# HELP http_handler_duration_seconds Handler method latency\n");
+        writer.write("# TYPE http_handler_duration_seconds histogram\n");
+        for (Map.Entry<String, Handler> entry : snapshot.entrySet()) {
+            writeHistogram(writer, "http_handler_duration_seconds", entry.getKey(), entry.getValue().latency, 1e-9);
+        }
+        writer.write("# HELP http_handler_allocated_bytes Bytes allocated by the request thread per request\n");
+        writer.write("# TYPE http_handler_allocated_bytes histogram\n");
+        for (Map.Entry<String, Handler> entry : snapshot.entrySet()) {
+            writeHistogram(writer, "http_handler_allocated_bytes", entry.getKey(), entry.getValue().allocation, 1);
+        }
+        writer.write("# HELP http_handler_errors_total Requests completed with an exception or a 5xx status\n");
+        writer.write("# TYPE http_handler_errors_total counter\n");
+        for (Map.Entry<String, Handler> entry : snapshot.entrySet()) {
+            writer.write("http_handler_errors_total{" + entry.getKey() + "} " + entry.getValue().errors.sum() + "\n");
+        }
+    }
+
+    private static void writeHistogram(Writer writer, String metric, String labels, PowerOfTwoHistogram histogram,
+                                       double scale) throws IOException {
+        long cumulative = 0;
+        for (int i = 0; i < histogram.bucketCount(); i++) {
+            cumulative += histogram.bucket(i);
+            long bound = histogram.upperBound(i);
+            String le = bound == Long.MAX_VALUE ? "+Inf" : format(bound * scale);
+            writer.write(metric + "_bucket{" + labels + ",le=\"" + le + "\"} " + cumulative + "\n");
+        }
+        // count берём из корзин: во время записи счётчик count может их опередить
+        writer.write(metric + "_sum{" + labels + "} " + format(histogram.sum() * scale) + "\n");
+        writer.write(metric + "_count{" + labels + "} " + cumulative + "\n");
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15
+                ? Long.toString((long) value)
+                : BigDecimal.valueOf(value).toPlainString();
+    }
+}
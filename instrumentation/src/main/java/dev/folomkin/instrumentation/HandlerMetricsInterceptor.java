@@ -0,0 +1,74 @@
+package dev.folomkin.instrumentation;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Засекает время и выделенную потоком память от входа в обработчик до завершения запроса.
+ * Для асинхронных запросов время считается до конца асинхронной обработки,
+ * а память - только если запрос завершился в том же потоке, где начался.
+ */
+public class HandlerMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String START = HandlerMetricsInterceptor.class.getName() + ".START";
+
+    private record Start(long nanos, long allocatedBytes, Thread thread) {
+    }
+
+    private final HandlerMetrics metrics;
+    private final com.sun.management.ThreadMXBean threads;
+
+    public HandlerMetricsInterceptor(HandlerMetrics metrics) {
+        this.metrics = metrics;
+        this.threads = allocationCounter();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+            return bean;
+        }
+        return null;
+    }
+
+    private long allocatedBytes() {
+        return threads == null ? -1 : threads.getCurrentThreadAllocatedBytes();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // при повторной (асинхронной) диспетчеризации отсчёт уже идёт
+        if (handler instanceof HandlerMethod && request.getAttribute(START) == null) {
+            request.setAttribute(START, new Start(System.nanoTime(), allocatedBytes(), Thread.currentThread()));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (!(handler instanceof HandlerMethod method) || !(request.getAttribute(START) instanceof Start start)) {
+            return;
+        }
+        request.removeAttribute(START);
+        long nanos = System.nanoTime() - start.nanos();
+        long allocated = -1;
+        if (start.allocatedBytes() >= 0 && start.thread() == Thread.currentThread()) {
+            long now = allocatedBytes();
+            allocated = now >= 0 ? now - start.allocatedBytes() : -1;
+        }
+        // шаблон пути, а не сам путь: иначе каждый id стал бы отдельным рядом
+        String route = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        metrics.handler(name(method), request.getMethod(), route)
+                .record(nanos, allocated, ex != null || response.getStatus() >= 500);
+    }
+
+    static String name(HandlerMethod method) {
+        return method.getBeanType().getSimpleName() + "." + method.getMethod().getName();
+    }
+}
@@ -0,0 +1,48 @@
+package dev.folomkin.instrumentation;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Подключает метрики обработчиков во все servlet-приложения, где библиотека на classpath.
+ * Отключается {@code instrumentation.enabled=false}.
+ */
+@AutoConfiguration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnClass(DispatcherServlet.class)
+@ConditionalOnProperty(prefix = "instrumentation", name = "enabled", matchIfMissing = true)
+public class InstrumentationAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public HandlerMetrics handlerMetrics() {
+        return new HandlerMetrics();
+    }
+
+    @Bean
+    public HandlerMetricsInterceptor handlerMetricsInterceptor(HandlerMetrics handlerMetrics) {
+        return new HandlerMetricsInterceptor(handlerMetrics);
+    }
+
+    @Bean
+    public WebMvcConfigurer handlerMetricsConfigurer(HandlerMetricsInterceptor handlerMetricsInterceptor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(handlerMetricsInterceptor);
+            }
+        };
+    }
+
+    @Bean
+    public MetricsEndpoint metricsEndpoint(HandlerMetrics handlerMetrics) {
+        return new MetricsEndpoint(handlerMetrics);
+    }
+}
@@ -0,0 +1,31 @@
+package dev.folomkin.instrumentation;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Метрики обработчиков в формате Prometheus.
+ */
+@RestController
+public class MetricsEndpoint {
+
+    static final MediaType PROMETHEUS_TEXT = MediaType.parseMediaType("text/plain;version=0.0.4;charset=utf-8");
+
+    private final HandlerMetrics metrics;
+
+    public MetricsEndpoint(HandlerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @GetMapping("${instrumentation.path:/internal/metrics}")
+    public ResponseEntity<String> scrape() throws IOException {
+        StringWriter writer = new StringWriter(16 * 1024);
+        metrics.writePrometheus(writer);
+        return ResponseEntity.ok().contentType(PROMETHEUS_TEXT).body(writer.toString());
+    }
+}
@@ -0,0 +1,59 @@
+package dev.folomkin.instrumentation;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма с границами корзин 2^k: корзина i считает значения до 2^(minExponent + i) включительно,
+ * последняя - всё, что больше. Номер корзины вычисляется по числу ведущих нулей,
+ * без поиска и ветвлений по границам. Запись без блокировок: счётчики - {@link LongAdder}.
+ */
+public final class PowerOfTwoHistogram {
+
+    private final int minExponent;
+    private final LongAdder[] buckets;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    public PowerOfTwoHistogram(int minExponent, int bucketCount) {
+        if (minExponent < 0 || bucketCount < 1 || minExponent + bucketCount > 62) {
+            throw new IllegalArgumentException("Unsupported range 2^" + minExponent + " x " + bucketCount);
+        }
+        this.minExponent = minExponent;
+        this.buckets = new LongAdder[bucketCount + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long value) {
+        long clamped = Math.max(value, 0);
+        // ceil(log2(value)) - minExponent, значения до 2^minExponent попадают в первую корзину
+        int index = Math.max(0, 64 - Long.numberOfLeadingZeros(Math.max(clamped - 1, 0)) - minExponent);
+        buckets[Math.min(index, buckets.length - 1)].increment();
+        count.increment();
+        sum.add(clamped);
+    }
+
+    /**
+     * Верхняя граница корзины; для последней - {@link Long#MAX_VALUE}.
+     */
+    public long upperBound(int bucket) {
+        return bucket == buckets.length - 1 ? Long.MAX_VALUE : 1L << (minExponent + bucket);
+    }
+
+    public int bucketCount() {
+        return buckets.length;
+    }
+
+    public long bucket(int bucket) {
+        return buckets[bucket].sum();
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+}
@@ -0,0 +1,109 @@
+package dev.folomkin.instrumentation;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.StringWriter;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class HandlerMetricsTest {
+
+    @RestController
+    static class SampleController {
+
+        @GetMapping("/sample")
+        String sample() {
+            return "x".repeat(100_000);
+        }
+
+        @GetMapping("/failure")
+        String failure() {
+            throw new IllegalStateException("boom");
+        }
+
+        @GetMapping("/items/{id}")
+        String find(@PathVariable int id) {
+            return "item";
+        }
+
+        @PostMapping("/items/_mget")
+        String find(@RequestBody String ids) {
+            return "items";
+        }
+    }
+
+    @Test
+    void record_PutsValuesIntoPowerOfTwoBuckets() {
+        // given
+        var histogram = new PowerOfTwoHistogram(10, 4);
+
+        // when
+        for (long value : new long[]{0, 1024, 1025, 2048, 16_384, 16_385, Long.MAX_VALUE}) {
+            histogram.record(value);
+        }
+
+        // then
+        assertEquals(5, histogram.bucketCount());
+        assertEquals(2, histogram.bucket(0));
+        assertEquals(2, histogram.bucket(1));
+        assertEquals(0, histogram.bucket(2));
+        assertEquals(0, histogram.bucket(3));
+        assertEquals(3, histogram.bucket(4));
+        assertEquals(8192, histogram.upperBound(3));
+        assertEquals(Long.MAX_VALUE, histogram.upperBound(4));
+        assertEquals(7, histogram.count());
+    }
+
+    @Test
+    void interceptor_RecordsHandlersAndExposesPrometheusText() throws Exception {
+        // given
+        var metrics = new HandlerMetrics();
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new SampleController(), new MetricsEndpoint(metrics))
+                .addInterceptors(new HandlerMetricsInterceptor(metrics))
+                .build();
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/sample")).andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/items/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/items/2")).andExpect(status().isOk());
+        mockMvc.perform(post("/items/_mget").content("1,2")).andExpect(status().isOk());
+        assertThrows(Exception.class, () -> mockMvc.perform(get("/failure")));
+
+        // then
+        mockMvc.perform(get("/internal/metrics"))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentTypeCompatibleWith("text/plain"),
+                        content().string(containsString("http_handler_duration_seconds_count"
+                                + "{handler=\"SampleController.sample\",method=\"GET\",route=\"/sample\"} 3")),
+                        content().string(containsString("http_handler_errors_total"
+                                + "{handler=\"SampleController.failure\",method=\"GET\",route=\"/failure\"} 1")),
+                        content().string(containsString("http_handler_duration_seconds_bucket"
+                                + "{handler=\"SampleController.sample\",method=\"GET\",route=\"/sample\",le=\"+Inf\"} 3")),
+                        // перегруженные обработчики - разные ряды, а пути с разными id - один
+                        content().string(containsString("http_handler_duration_seconds_count"
+                                + "{handler=\"SampleController.find\",method=\"GET\",route=\"/items/{id}\"} 2")),
+                        content().string(containsString("http_handler_duration_seconds_count"
+                                + "{handler=\"SampleController.find\",method=\"POST\",route=\"/items/_mget\"} 1"))
+                );
+        var text = new StringWriter();
+        metrics.writePrometheus(text);
+        // строка в 100 000 символов не помещается в первые корзины по памяти
+        assertTrue(text.toString().contains(
+                "http_handler_allocated_bytes_bucket{handler=\"SampleController.sample\",method=\"GET\","
+                        + "route=\"/sample\",le=\"65536\"} 0"));
+    }
+}
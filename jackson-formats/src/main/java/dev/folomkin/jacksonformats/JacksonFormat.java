@@ -0,0 +1,97 @@
+package dev.folomkin.jacksonformats;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Кодировки ответов: JSON и бинарные CBOR и Smile для клиентов-сервисов.
+ * Все три пишет Jackson, так что структура документа одна и та же.
+ * Кроме общего типа формата ({@code application/cbor}) знакомы и вендорские ({@code application/*+cbor}).
+ */
+public enum JacksonFormat {
+
+    JSON("json", MediaType.APPLICATION_JSON, JsonFactory::new),
+    CBOR("cbor", MediaType.APPLICATION_CBOR, CBORFactory::new),
+    SMILE("smile", new MediaType("application", "x-jackson-smile"), SmileFactory::new);
+
+    private final String suffix;
+    private final MediaType mediaType;
+    private final Supplier<JsonFactory> factory;
+
+    JacksonFormat(String suffix, MediaType mediaType, Supplier<JsonFactory> factory) {
+        this.suffix = suffix;
+        this.mediaType = mediaType;
+        this.factory = factory;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Общий тип формата и все вендорские: {@code application/cbor} и {@code application/*+cbor}.
+     */
+    public List<MediaType> mediaTypes() {
+        return List.of(mediaType, new MediaType("application", "*+" + suffix));
+    }
+
+    /**
+     * Вендорский JSON-тип в этой кодировке.
+     */
+    public MediaType of(String jsonType) {
+        return MediaType.valueOf(jsonType.substring(0, jsonType.length() - "json".length()) + suffix);
+    }
+
+    /**
+     * ObjectMapper этого формата с настройками spring.jackson.* из builder.
+     */
+    public ObjectMapper objectMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(factory.get()).build();
+    }
+
+    /**
+     * Формат по заголовку Accept: из знакомых типов выигрывает тип с наибольшим q, при равных - первый.
+     * Тип с {@code q=0} клиент не принимает, он не выбирается.
+     * Без Accept, с непонятным или без знакомых типов - JSON, как было до бинарных форматов.
+     */
+    public static JacksonFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+        JacksonFormat best = JSON;
+        // q=0 - "не присылать этот тип"
+        double bestQuality = 0;
+        for (MediaType mediaType : mediaTypes) {
+            JacksonFormat format = of(mediaType);
+            if (format != null && mediaType.getQualityValue() > bestQuality) {
+                best = format;
+                bestQuality = mediaType.getQualityValue();
+            }
+        }
+        return best;
+    }
+
+    private static JacksonFormat of(MediaType mediaType) {
+        for (JacksonFormat format : values()) {
+            if (format.mediaType.equalsTypeAndSubtype(mediaType) || format.suffix.equals(mediaType.getSubtypeSuffix())) {
+                return format;
+            }
+        }
+        // */* и application/*
+        return mediaType.includes(MediaType.APPLICATION_JSON) ? JSON : null;
+    }
+}
@@ -0,0 +1,31 @@
+package dev.folomkin.jacksonformats;
+
+import org.springframework.http.codec.CodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+
+/**
+ * Кодеки CBOR и Smile для WebFlux. CBOR WebFlux по умолчанию не регистрирует, Smile - без
+ * настроек spring.jackson.*; оба знают только общий тип формата. Эти собраны на ObjectMapper
+ * с настройками приложения, понимают и вендорские типы и пишут тело одним документом.
+ */
+public final class JacksonFormatCodecs {
+
+    private JacksonFormatCodecs() {
+    }
+
+    public static void register(CodecConfigurer configurer, Jackson2ObjectMapperBuilder builder) {
+        var cbor = JacksonFormat.CBOR.objectMapper(builder);
+        var cborTypes = JacksonFormat.CBOR.mediaTypes().toArray(MimeType[]::new);
+        configurer.customCodecs().register(new DocumentEncoder(new Jackson2CborEncoder(cbor, cborTypes)));
+        configurer.customCodecs().register(new Jackson2CborDecoder(cbor, cborTypes));
+        var smile = JacksonFormat.SMILE.objectMapper(builder);
+        var smileTypes = JacksonFormat.SMILE.mediaTypes().toArray(MimeType[]::new);
+        configurer.customCodecs().register(new DocumentEncoder(new Jackson2SmileEncoder(smile, smileTypes)));
+        configurer.customCodecs().register(new Jackson2SmileDecoder(smile, smileTypes));
+    }
+}
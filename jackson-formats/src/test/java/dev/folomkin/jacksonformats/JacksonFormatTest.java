@@ -0,0 +1,36 @@
+package dev.folomkin.jacksonformats;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JacksonFormatTest {
+
+    @Test
+    void negotiate_PicksKnownTypeWithHighestQuality() {
+        assertEquals(JacksonFormat.JSON, JacksonFormat.negotiate(null));
+        assertEquals(JacksonFormat.JSON, JacksonFormat.negotiate("text/html, */*"));
+        assertEquals(JacksonFormat.JSON, JacksonFormat.negotiate("не тип"));
+        assertEquals(JacksonFormat.CBOR, JacksonFormat.negotiate("application/cbor, application/json"));
+        assertEquals(JacksonFormat.JSON, JacksonFormat.negotiate("application/cbor;q=0.5, application/json"));
+        assertEquals(JacksonFormat.SMILE, JacksonFormat.negotiate("application/x-jackson-smile"));
+        assertEquals(JacksonFormat.SMILE, JacksonFormat.negotiate("application/vnd.example.v1+smile, */*;q=0.1"));
+    }
+
+    @Test
+    void negotiate_SkipsTypesWithZeroQuality() {
+        assertEquals(JacksonFormat.JSON, JacksonFormat.negotiate("application/cbor;q=0"));
+        assertEquals(JacksonFormat.JSON, JacksonFormat.negotiate("application/cbor;q=0, application/json;q=0.1"));
+        assertEquals(JacksonFormat.SMILE,
+                JacksonFormat.negotiate("application/x-jackson-smile;q=0.2, application/vnd.example.v1+cbor;q=0"));
+    }
+
+    @Test
+    void of_KeepsVendorTypeInOtherEncoding() {
+        assertEquals(MediaType.valueOf("application/vnd.example.v1+cbor"),
+                JacksonFormat.CBOR.of("application/vnd.example.v1+json"));
+        assertTrue(JacksonFormat.CBOR.mediaTypes().stream()
+                .anyMatch(type -> type.includes(MediaType.valueOf("application/vnd.example.v1+cbor"))));
+    }
+}
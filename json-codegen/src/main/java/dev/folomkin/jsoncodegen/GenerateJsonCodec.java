@@ -0,0 +1,26 @@
+package dev.folomkin.jsoncodegen;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Генерировать для типа {@link JsonCodec} во время компиляции.
+ * Для записи {@code Foo} появляется {@code FooJsonCodec}, для вложенного
+ * {@code Outer.Foo} - {@code Outer_FooJsonCodec} в том же пакете.
+ * <p>
+ * Свойства берутся как у Jackson без аннотаций: компоненты записи, у класса - геттеры
+ * в порядке полей. Читается класс через конструктор, имена параметров которого совпадают
+ * с именами свойств, и сеттеры. Типы свойств: примитивы и их обёртки (int, long, double,
+ * float, boolean), {@link String}, {@link java.util.UUID}, типы с этой аннотацией
+ * и {@link java.util.List} из них; на остальные процессор выдаёт ошибку компиляции.
+ * Аннотации Jackson ({@code @JsonProperty}, {@code @JsonInclude}, {@code @JsonIgnore} и др.)
+ * на типе и его членах - тоже ошибка: кодек их не учитывает.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateJsonCodec {
+}
@@ -0,0 +1,25 @@
+package dev.folomkin.jsoncodegen;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * Запись и чтение одного типа потоковым API Jackson, без рефлексии и ObjectMapper.
+ * Реализации генерирует процессор по {@link GenerateJsonCodec} и регистрирует
+ * в {@code META-INF/services}, откуда их собирает {@link JsonCodecs#load(ClassLoader)}.
+ */
+public interface JsonCodec<T> {
+
+    Class<T> type();
+
+    // null пишется как JSON null
+    void write(JsonGenerator generator, T value) throws IOException;
+
+    /**
+     * Читает значение, на первом токене которого стоит parser ({@code START_OBJECT} или
+     * {@code VALUE_NULL}), и оставляет parser на его последнем токене.
+     */
+    T read(JsonParser parser) throws IOException;
+}
@@ -0,0 +1,32 @@
+package dev.folomkin.jsoncodegen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+
+/**
+ * Ставит {@link JsonCodecHttpMessageConverter} со всеми сгенерированными кодеками
+ * в servlet-приложения: Spring Boot кладёт конвертеры-бины перед стандартными.
+ * Отключается {@code json-codegen.enabled=false} - тогда всё снова пишет ObjectMapper.
+ */
+@AutoConfiguration(after = JacksonAutoConfiguration.class, before = HttpMessageConvertersAutoConfiguration.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnClass({ObjectMapper.class, AbstractGenericHttpMessageConverter.class})
+@ConditionalOnBean(ObjectMapper.class)
+@ConditionalOnProperty(prefix = "json-codegen", name = "enabled", matchIfMissing = true)
+public class JsonCodecAutoConfiguration {
+
+    @Bean
+    public JsonCodecHttpMessageConverter jsonCodecHttpMessageConverter(ObjectMapper objectMapper,
+                                                                       ApplicationContext context) {
+        return new JsonCodecHttpMessageConverter(objectMapper.getFactory(), JsonCodecs.load(context.getClassLoader()));
+    }
+}
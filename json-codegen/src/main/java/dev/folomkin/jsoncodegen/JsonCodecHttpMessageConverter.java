@@ -0,0 +1,106 @@
+package dev.folomkin.jsoncodegen;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON для типов со сгенерированными кодеками ({@code application/json} и
+ * {@code application/*+json}). Стоит перед конвертером Jackson: остальные типы,
+ * а также тела, объявленные как {@code Object} или {@code ResponseEntity<?>}, где тип
+ * элемента списка не виден, по-прежнему пишет ObjectMapper.
+ * Генератор и парсер берутся из JsonFactory приложения: действуют только её настройки
+ * (spring.jackson.generator.*, parser.*). Настройки ObjectMapper (spring.jackson.serialization.*,
+ * default-property-inclusion, property-naming-strategy, форматы дат) кодеки не видят.
+ */
+public class JsonCodecHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    private final JsonFactory jsonFactory;
+    private final JsonCodecs codecs;
+
+    public JsonCodecHttpMessageConverter(JsonFactory jsonFactory, JsonCodecs codecs) {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        this.jsonFactory = jsonFactory;
+        this.codecs = codecs;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return codecs.find(clazz) != null;
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return codecs.find(type) != null && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        JsonCodec<Object> codec = type == null || type == Object.class ? null : codecs.find(type);
+        return (codec != null || codecs.find((Type) clazz) != null) && canWrite(mediaType) && isUtf8(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        return read(codecs.find(type), inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        return read(codecs.find((Type) clazz), inputMessage);
+    }
+
+    private Object read(JsonCodec<Object> codec, HttpInputMessage inputMessage) throws IOException {
+        MediaType contentType = inputMessage.getHeaders().getContentType();
+        Charset charset = contentType == null ? null : contentType.getCharset();
+        // без charset или в UTF-8 Jackson сам определяет кодировку по первым байтам
+        try (JsonParser parser = charset == null || charset.equals(StandardCharsets.UTF_8)
+                ? jsonFactory.createParser(inputMessage.getBody())
+                : jsonFactory.createParser(new InputStreamReader(inputMessage.getBody(), charset))) {
+            if (parser.nextToken() == null) {
+                throw new HttpMessageNotReadableException("No content to map due to end-of-input", inputMessage);
+            }
+            return codec.read(parser);
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException("JSON parse error: " + e.getOriginalMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object value, @Nullable Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        JsonCodec<Object> codec = type == null || type == Object.class ? null : codecs.find(type);
+        if (codec == null) {
+            codec = codecs.find((Type) value.getClass());
+        }
+        try (JsonGenerator generator = jsonFactory.createGenerator(
+                StreamUtils.nonClosing(outputMessage.getBody()), JsonEncoding.UTF8)) {
+            codec.write(generator, value);
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotWritableException("Could not write JSON: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private static boolean isUtf8(@Nullable MediaType mediaType) {
+        return mediaType == null || mediaType.getCharset() == null
+                || mediaType.getCharset().equals(StandardCharsets.UTF_8);
+    }
+}
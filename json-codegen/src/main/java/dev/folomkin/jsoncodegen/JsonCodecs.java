@@ -0,0 +1,66 @@
+package dev.folomkin.jsoncodegen;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кодеки по типам: сам тип с {@link GenerateJsonCodec} или {@code List} из таких.
+ */
+public final class JsonCodecs {
+
+    private final Map<Class<?>, JsonCodec<?>> codecs = new HashMap<>();
+    private final Map<Class<?>, JsonCodec<?>> lists = new ConcurrentHashMap<>();
+
+    public JsonCodecs(Collection<? extends JsonCodec<?>> codecs) {
+        for (JsonCodec<?> codec : codecs) {
+            this.codecs.put(codec.type(), codec);
+        }
+    }
+
+    /**
+     * Кодеки, которые процессор записал в {@code META-INF/services} всех jar на classpath.
+     * ServiceLoader поддерживается и в native image: провайдеры находятся при сборке образа.
+     */
+    public static JsonCodecs load(ClassLoader classLoader) {
+        List<JsonCodec<?>> codecs = new ArrayList<>();
+        for (JsonCodec<?> codec : ServiceLoader.load(JsonCodec.class, classLoader)) {
+            codecs.add(codec);
+        }
+        return new JsonCodecs(codecs);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> JsonCodec<T> find(Class<T> type) {
+        return (JsonCodec<T>) codecs.get(type);
+    }
+
+    /**
+     * Кодек для {@code Foo} или {@code List<Foo>}; null, если такого нет.
+     */
+    @SuppressWarnings("unchecked")
+    public JsonCodec<Object> find(Type type) {
+        if (type instanceof Class<?> clazz) {
+            return (JsonCodec<Object>) codecs.get(clazz);
+        }
+        if (type instanceof ParameterizedType parameterized
+                && parameterized.getRawType() instanceof Class<?> raw
+                && raw == List.class
+                && parameterized.getActualTypeArguments()[0] instanceof Class<?> element
+                && codecs.containsKey(element)) {
+            return (JsonCodec<Object>) lists.computeIfAbsent(element,
+                    key -> new ListJsonCodec<>(codecs.get(key)));
+        }
+        return null;
+    }
+
+    public Collection<Class<?>> types() {
+        return codecs.keySet();
+    }
+}
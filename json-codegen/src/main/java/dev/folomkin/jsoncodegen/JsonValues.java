@@ -0,0 +1,128 @@
+package dev.folomkin.jsoncodegen;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Чтение скалярных свойств для сгенерированных кодеков. Приведения те же, что у Jackson
+ * по умолчанию: число из строки, null в примитив - ноль, скаляр в строку; объект или
+ * массив вместо скаляра - ошибка разбора.
+ */
+public final class JsonValues {
+
+    private JsonValues() {
+    }
+
+    public static void expect(JsonParser parser, JsonToken token) throws IOException {
+        if (parser.currentToken() != token) {
+            throw new JsonParseException(parser, "Expected " + token + " but was " + parser.currentToken());
+        }
+    }
+
+    public static int readInt(JsonParser parser) throws IOException {
+        return switch (scalar(parser)) {
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getIntValue();
+            case VALUE_NULL -> 0;
+            default -> (int) parseLong(parser, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        };
+    }
+
+    public static Integer readInteger(JsonParser parser) throws IOException {
+        return parser.currentToken() == JsonToken.VALUE_NULL ? null : readInt(parser);
+    }
+
+    public static long readLong(JsonParser parser) throws IOException {
+        return switch (scalar(parser)) {
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getLongValue();
+            case VALUE_NULL -> 0;
+            default -> parseLong(parser, Long.MIN_VALUE, Long.MAX_VALUE);
+        };
+    }
+
+    public static Long readLongObject(JsonParser parser) throws IOException {
+        return parser.currentToken() == JsonToken.VALUE_NULL ? null : readLong(parser);
+    }
+
+    public static double readDouble(JsonParser parser) throws IOException {
+        return switch (scalar(parser)) {
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+            case VALUE_NULL -> 0;
+            default -> {
+                try {
+                    yield Double.parseDouble(parser.getText().trim());
+                } catch (NumberFormatException e) {
+                    throw new JsonParseException(parser, "Not a number: " + parser.getText(), e);
+                }
+            }
+        };
+    }
+
+    public static Double readDoubleObject(JsonParser parser) throws IOException {
+        return parser.currentToken() == JsonToken.VALUE_NULL ? null : readDouble(parser);
+    }
+
+    public static float readFloat(JsonParser parser) throws IOException {
+        return (float) readDouble(parser);
+    }
+
+    public static Float readFloatObject(JsonParser parser) throws IOException {
+        return parser.currentToken() == JsonToken.VALUE_NULL ? null : readFloat(parser);
+    }
+
+    public static boolean readBoolean(JsonParser parser) throws IOException {
+        return switch (scalar(parser)) {
+            case VALUE_TRUE -> true;
+            case VALUE_FALSE, VALUE_NULL -> false;
+            case VALUE_STRING -> switch (parser.getText().trim()) {
+                case "true", "True", "TRUE" -> true;
+                case "false", "False", "FALSE" -> false;
+                default -> throw new JsonParseException(parser, "Not a boolean: " + parser.getText());
+            };
+            default -> parser.getIntValue() != 0;
+        };
+    }
+
+    public static Boolean readBooleanObject(JsonParser parser) throws IOException {
+        return parser.currentToken() == JsonToken.VALUE_NULL ? null : readBoolean(parser);
+    }
+
+    public static String readString(JsonParser parser) throws IOException {
+        return scalar(parser) == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+
+    public static UUID readUuid(JsonParser parser) throws IOException {
+        String text = readString(parser);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(text);
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException(parser, "Not a UUID: " + text, e);
+        }
+    }
+
+    private static JsonToken scalar(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == null || !token.isScalarValue()) {
+            throw new JsonParseException(parser, "Expected a scalar value but was " + token);
+        }
+        return token;
+    }
+
+    private static long parseLong(JsonParser parser, long min, long max) throws IOException {
+        try {
+            long value = Long.parseLong(parser.getText().trim());
+            if (value < min || value > max) {
+                throw new JsonParseException(parser, "Number out of range: " + value);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new JsonParseException(parser, "Not a number: " + parser.getText(), e);
+        }
+    }
+}
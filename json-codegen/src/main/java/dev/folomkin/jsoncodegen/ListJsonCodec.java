@@ -0,0 +1,53 @@
+package dev.folomkin.jsoncodegen;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JSON-массив значений одного типа. Читается в {@link ArrayList}, как у Jackson.
+ */
+public final class ListJsonCodec<T> implements JsonCodec<List<T>> {
+
+    private final JsonCodec<T> element;
+
+    public ListJsonCodec(JsonCodec<T> element) {
+        this.element = element;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Class<List<T>> type() {
+        return (Class<List<T>>) (Class<?>) List.class;
+    }
+
+    @Override
+    public void write(JsonGenerator generator, List<T> value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray(value, value.size());
+        for (T item : value) {
+            element.write(generator, item);
+        }
+        generator.writeEndArray();
+    }
+
+    @Override
+    public List<T> read(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        JsonValues.expect(parser, JsonToken.START_ARRAY);
+        List<T> values = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(element.read(parser));
+        }
+        return values;
+    }
+}
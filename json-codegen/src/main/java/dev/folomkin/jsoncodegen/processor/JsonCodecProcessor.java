@@ -0,0 +1,497 @@
+package dev.folomkin.jsoncodegen.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Генерирует {@code JsonCodec} для типов с {@code @GenerateJsonCodec} и список
+ * сгенерированных кодеков в {@code META-INF/services}.
+ * <p>
+ * Запись - последовательность вызовов JsonGenerator с заранее закодированными
+ * именами полей ({@code SerializedString}), чтение - цикл по именам полей со switch.
+ * Ни рефлексии, ни ObjectMapper в сгенерированном коде нет.
+ */
+@SupportedAnnotationTypes(JsonCodecProcessor.ANNOTATION)
+public class JsonCodecProcessor extends AbstractProcessor {
+
+    static final String ANNOTATION = "dev.folomkin.jsoncodegen.GenerateJsonCodec";
+    static final String CODEC = "dev.folomkin.jsoncodegen.JsonCodec";
+    static final String SERVICES = "META-INF/services/" + CODEC;
+    static final String JACKSON_ANNOTATIONS_INSIDE = "com.fasterxml.jackson.annotation.JacksonAnnotationsInside";
+
+    // Свойство: имя в JSON, тип, выражение чтения из value и способ установки при чтении
+    private record Property(String name, TypeMirror type, String getter, String setter) {
+    }
+
+    private static final class UnsupportedTypeException extends Exception {
+        private final Element element;
+
+        UnsupportedTypeException(String message, Element element) {
+            super(message);
+            this.element = element;
+        }
+    }
+
+    private final Set<String> codecs = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+        if (annotation != null) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                generate(element);
+            }
+        }
+        if (roundEnv.processingOver() && !codecs.isEmpty()) {
+            writeServices();
+        }
+        return false;
+    }
+
+    private void generate(Element element) {
+        if (!(element instanceof TypeElement type)
+                || (type.getKind() != ElementKind.CLASS && type.getKind() != ElementKind.RECORD)) {
+            error("@GenerateJsonCodec applies to classes and records", element);
+            return;
+        }
+        if (!type.getTypeParameters().isEmpty() || type.getModifiers().contains(Modifier.ABSTRACT)
+                || !type.getModifiers().contains(Modifier.PUBLIC)
+                || (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC)
+                && type.getKind() != ElementKind.RECORD)) {
+            error("@GenerateJsonCodec needs a public, non-generic, non-abstract top-level or static type", element);
+            return;
+        }
+        try {
+            rejectJacksonAnnotations(type);
+            String source = type.getKind() == ElementKind.RECORD ? recordCodec(type) : beanCodec(type);
+            String codec = codecName(type);
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(codec, type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source);
+            }
+            codecs.add(codec);
+        } catch (UnsupportedTypeException e) {
+            error(e.getMessage(), e.element != null ? e.element : type);
+        } catch (IOException e) {
+            error("Failed to write codec: " + e, element);
+        }
+    }
+
+    /**
+     * Кодек пишет свойства как Jackson без аннотаций: @JsonInclude, @JsonProperty, @JsonIgnore
+     * и остальные он бы молча пропустил, и JSON разошёлся бы с ObjectMapper. Такой тип - ошибка.
+     */
+    private void rejectJacksonAnnotations(TypeElement type) throws UnsupportedTypeException {
+        for (TypeElement current = type; current != null; current = superclass(current)) {
+            checkAnnotations(current);
+            for (Element member : current.getEnclosedElements()) {
+                checkAnnotations(member);
+                if (member instanceof ExecutableElement executable) {
+                    for (VariableElement parameter : executable.getParameters()) {
+                        checkAnnotations(parameter);
+                    }
+                }
+            }
+        }
+    }
+
+    private TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return element.getQualifiedName().contentEquals("java.lang.Object")
+                || element.getQualifiedName().contentEquals("java.lang.Record") ? null : element;
+    }
+
+    private void checkAnnotations(Element element) throws UnsupportedTypeException {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (isJacksonAnnotation(annotationType) || annotationType.getAnnotationMirrors().stream()
+                    .anyMatch(meta -> meta.getAnnotationType().toString().equals(JACKSON_ANNOTATIONS_INSIDE))) {
+                throw new UnsupportedTypeException("@GenerateJsonCodec ignores Jackson annotations, remove "
+                        + annotation + " or @GenerateJsonCodec", element);
+            }
+        }
+    }
+
+    private boolean isJacksonAnnotation(TypeElement annotationType) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(annotationType).getQualifiedName().toString();
+        return packageName.startsWith("com.fasterxml.jackson.") && packageName.endsWith(".annotation");
+    }
+
+    private String recordCodec(TypeElement type) throws UnsupportedTypeException {
+        List<Property> properties = new ArrayList<>();
+        for (RecordComponentElement component : type.getRecordComponents()) {
+            String name = component.getSimpleName().toString();
+            properties.add(new Property(name, component.asType(), "value." + name + "()", "constructor"));
+        }
+        return source(type, properties, properties);
+    }
+
+    /**
+     * Свойства бина как у Jackson: геттеры getX/isX, порядок - параметры конструктора,
+     * затем поля, затем остальные геттеры. Читается через конструктор с параметрами-свойствами
+     * (берётся самый длинный такой) и сеттеры.
+     */
+    private String beanCodec(TypeElement type) throws UnsupportedTypeException {
+        Map<String, Property> getters = new LinkedHashMap<>();
+        Map<String, ExecutableElement> setters = new LinkedHashMap<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC)
+                    || method.getEnclosingElement().toString().equals("java.lang.Object")) {
+                continue;
+            }
+            String methodName = method.getSimpleName().toString();
+            TypeMirror returnType = method.getReturnType();
+            if (method.getParameters().isEmpty() && returnType.getKind() != TypeKind.VOID) {
+                String name = methodName.startsWith("get") ? propertyName(methodName, 3)
+                        : methodName.startsWith("is") && returnType.getKind() == TypeKind.BOOLEAN
+                        ? propertyName(methodName, 2) : null;
+                if (name != null) {
+                    getters.putIfAbsent(name, new Property(name, returnType, "value." + methodName + "()", null));
+                }
+            } else if (method.getParameters().size() == 1 && returnType.getKind() == TypeKind.VOID
+                    && methodName.startsWith("set")) {
+                String name = propertyName(methodName, 3);
+                if (name != null) {
+                    setters.putIfAbsent(name, method);
+                }
+            }
+        }
+        ExecutableElement constructor = creator(type, getters);
+        if (constructor == null) {
+            throw new UnsupportedTypeException(type + " needs a public constructor whose parameters "
+                    + "are named after its properties, or a public no-argument constructor", type);
+        }
+
+        Map<String, Property> ordered = new LinkedHashMap<>();
+        for (VariableElement parameter : constructor.getParameters()) {
+            String name = parameter.getSimpleName().toString();
+            Property getter = getters.get(name);
+            ordered.put(name, new Property(name, getter.type(), getter.getter(), "constructor"));
+        }
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            String name = field.getSimpleName().toString();
+            if (getters.containsKey(name) && !ordered.containsKey(name)) {
+                ordered.put(name, withSetter(getters.get(name), setters));
+            }
+        }
+        for (Property getter : getters.values()) {
+            if (!ordered.containsKey(getter.name())) {
+                ordered.put(getter.name(), withSetter(getter, setters));
+            }
+        }
+        List<Property> properties = new ArrayList<>(ordered.values());
+        List<Property> creatorProperties = properties.subList(0, constructor.getParameters().size());
+        return source(type, properties, creatorProperties);
+    }
+
+    private Property withSetter(Property getter, Map<String, ExecutableElement> setters) {
+        ExecutableElement setter = setters.get(getter.name());
+        boolean matches = setter != null && processingEnv.getTypeUtils()
+                .isSameType(setter.getParameters().get(0).asType(), getter.type());
+        return new Property(getter.name(), getter.type(), getter.getter(),
+                matches ? setter.getSimpleName().toString() : null);
+    }
+
+    private ExecutableElement creator(TypeElement type, Map<String, Property> getters) {
+        ExecutableElement best = null;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (!constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+            boolean matches = true;
+            for (VariableElement parameter : constructor.getParameters()) {
+                Property getter = getters.get(parameter.getSimpleName().toString());
+                matches &= getter != null && processingEnv.getTypeUtils().isSameType(getter.type(), parameter.asType());
+            }
+            if (matches && (best == null || constructor.getParameters().size() > best.getParameters().size())) {
+                best = constructor;
+            }
+        }
+        return best;
+    }
+
+    // getURL -> url, getId -> id: ведущие заглавные в нижний регистр, как у Jackson
+    private static String propertyName(String methodName, int prefix) {
+        if (methodName.length() <= prefix || !Character.isUpperCase(methodName.charAt(prefix))) {
+            return null;
+        }
+        StringBuilder name = new StringBuilder(methodName.substring(prefix));
+        for (int i = 0; i < name.length() && Character.isUpperCase(name.charAt(i)); i++) {
+            name.setCharAt(i, Character.toLowerCase(name.charAt(i)));
+        }
+        return name.toString();
+    }
+
+    private String source(TypeElement type, List<Property> properties, List<Property> creatorProperties)
+            throws UnsupportedTypeException {
+        String qualifiedName = codecName(type);
+        int dot = qualifiedName.lastIndexOf('.');
+        String packageName = dot < 0 ? "" : qualifiedName.substring(0, dot);
+        String simpleName = qualifiedName.substring(dot + 1);
+        String typeName = type.getQualifiedName().toString();
+
+        StringBuilder out = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        out.append("import com.fasterxml.jackson.core.JsonGenerator;\n")
+                .append("import com.fasterxml.jackson.core.JsonParser;\n")
+                .append("import com.fasterxml.jackson.core.JsonToken;\n")
+                .append("import com.fasterxml.jackson.core.io.SerializedString;\n")
+                .append("import dev.folomkin.jsoncodegen.JsonCodec;\n")
+                .append("import dev.folomkin.jsoncodegen.JsonValues;\n")
+                .append("import dev.folomkin.jsoncodegen.ListJsonCodec;\n\n")
+                .append("import java.io.IOException;\n\n")
+                .append("/**\n * Сгенерирован по {@link ").append(typeName).append("}, не редактировать.\n */\n")
+                .append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n")
+                .append("public final class ").append(simpleName).append(" implements JsonCodec<")
+                .append(typeName).append("> {\n\n")
+                .append("    public static final ").append(simpleName).append(" INSTANCE = new ")
+                .append(simpleName).append("();\n\n");
+
+        for (Property property : properties) {
+            out.append("    private static final SerializedString ").append(constant(property))
+                    .append(" = new SerializedString(\"").append(property.name()).append("\");\n");
+        }
+        for (Property property : properties) {
+            TypeMirror element = listElement(property.type());
+            if (element != null) {
+                out.append("    private static final ListJsonCodec<").append(element).append("> ")
+                        .append(constant(property)).append("_LIST = new ListJsonCodec<>(")
+                        .append(codecName(codecType(element, property))).append(".INSTANCE);\n");
+            }
+        }
+
+        out.append("\n    @Override\n    public Class<").append(typeName).append("> type() {\n")
+                .append("        return ").append(typeName).append(".class;\n    }\n\n");
+
+        out.append("    @Override\n    public void write(JsonGenerator generator, ").append(typeName)
+                .append(" value) throws IOException {\n")
+                .append("        if (value == null) {\n            generator.writeNull();\n            return;\n        }\n")
+                .append("        generator.writeStartObject(value);\n");
+        for (Property property : properties) {
+            out.append("        generator.writeFieldName(").append(constant(property)).append(");\n");
+            writeValue(out, property);
+        }
+        out.append("        generator.writeEndObject();\n    }\n\n");
+
+        out.append("    @Override\n    public ").append(typeName).append(" read(JsonParser parser) throws IOException {\n")
+                .append("        if (parser.currentToken() == JsonToken.VALUE_NULL) {\n            return null;\n        }\n")
+                .append("        JsonValues.expect(parser, JsonToken.START_OBJECT);\n");
+        List<Property> readable = new ArrayList<>();
+        for (Property property : properties) {
+            if (property.setter() != null) {
+                readable.add(property);
+            }
+        }
+        for (int i = 0; i < readable.size(); i++) {
+            Property property = readable.get(i);
+            out.append("        ").append(property.type()).append(" v").append(i).append(" = ")
+                    .append(defaultValue(property.type())).append(";\n");
+            if (!property.setter().equals("constructor")) {
+                out.append("        boolean has").append(i).append(" = false;\n");
+            }
+        }
+        out.append("        String name;\n")
+                .append("        while ((name = parser.nextFieldName()) != null) {\n")
+                .append("            parser.nextToken();\n")
+                .append("            switch (name) {\n");
+        for (int i = 0; i < readable.size(); i++) {
+            Property property = readable.get(i);
+            out.append("                case \"").append(property.name()).append("\" -> ");
+            if (property.setter().equals("constructor")) {
+                out.append("v").append(i).append(" = ").append(readValue(property)).append(";\n");
+            } else {
+                out.append("{\n                    v").append(i).append(" = ").append(readValue(property))
+                        .append(";\n                    has").append(i).append(" = true;\n                }\n");
+            }
+        }
+        out.append("                default -> parser.skipChildren();\n")
+                .append("            }\n        }\n")
+                .append("        JsonValues.expect(parser, JsonToken.END_OBJECT);\n")
+                .append("        ").append(typeName).append(" value = new ").append(typeName).append("(");
+        for (int i = 0; i < creatorProperties.size(); i++) {
+            out.append(i == 0 ? "" : ", ").append("v").append(readable.indexOf(creatorProperties.get(i)));
+        }
+        out.append(");\n");
+        for (int i = 0; i < readable.size(); i++) {
+            Property property = readable.get(i);
+            if (!property.setter().equals("constructor")) {
+                out.append("        if (has").append(i).append(") {\n            value.").append(property.setter())
+                        .append("(v").append(i).append(");\n        }\n");
+            }
+        }
+        out.append("        return value;\n    }\n}\n");
+        return out.toString();
+    }
+
+    private void writeValue(StringBuilder out, Property property) throws UnsupportedTypeException {
+        TypeMirror type = property.type();
+        String value = property.getter();
+        switch (type.getKind()) {
+            case INT, LONG, DOUBLE, FLOAT -> out.append("        generator.writeNumber(").append(value).append(");\n");
+            case BOOLEAN -> out.append("        generator.writeBoolean(").append(value).append(");\n");
+            case DECLARED -> {
+                String name = erasure(type);
+                String write = switch (name) {
+                    case "java.lang.String" -> "generator.writeString(v)";
+                    case "java.util.UUID" -> "generator.writeString(v.toString())";
+                    case "java.lang.Integer" -> "generator.writeNumber(v.intValue())";
+                    case "java.lang.Long" -> "generator.writeNumber(v.longValue())";
+                    case "java.lang.Double" -> "generator.writeNumber(v.doubleValue())";
+                    case "java.lang.Float" -> "generator.writeNumber(v.floatValue())";
+                    case "java.lang.Boolean" -> "generator.writeBoolean(v.booleanValue())";
+                    default -> null;
+                };
+                if (write != null) {
+                    out.append("        {\n            ").append(type).append(" v = ").append(value).append(";\n")
+                            .append("            if (v == null) {\n                generator.writeNull();\n")
+                            .append("            } else {\n                ").append(write).append(";\n            }\n")
+                            .append("        }\n");
+                } else if (listElement(type) != null) {
+                    out.append("        ").append(constant(property)).append("_LIST.write(generator, ")
+                            .append(value).append(");\n");
+                } else {
+                    out.append("        ").append(codecName(codecType(type, property)))
+                            .append(".INSTANCE.write(generator, ").append(value).append(");\n");
+                }
+            }
+            default -> throw unsupported(property);
+        }
+    }
+
+    private String readValue(Property property) throws UnsupportedTypeException {
+        TypeMirror type = property.type();
+        return switch (type.getKind()) {
+            case INT -> "JsonValues.readInt(parser)";
+            case LONG -> "JsonValues.readLong(parser)";
+            case DOUBLE -> "JsonValues.readDouble(parser)";
+            case FLOAT -> "JsonValues.readFloat(parser)";
+            case BOOLEAN -> "JsonValues.readBoolean(parser)";
+            case DECLARED -> switch (erasure(type)) {
+                case "java.lang.String" -> "JsonValues.readString(parser)";
+                case "java.util.UUID" -> "JsonValues.readUuid(parser)";
+                case "java.lang.Integer" -> "JsonValues.readInteger(parser)";
+                case "java.lang.Long" -> "JsonValues.readLongObject(parser)";
+                case "java.lang.Double" -> "JsonValues.readDoubleObject(parser)";
+                case "java.lang.Float" -> "JsonValues.readFloatObject(parser)";
+                case "java.lang.Boolean" -> "JsonValues.readBooleanObject(parser)";
+                default -> listElement(type) != null
+                        ? constant(property) + "_LIST.read(parser)"
+                        : codecName(codecType(type, property)) + ".INSTANCE.read(parser)";
+            };
+            default -> throw unsupported(property);
+        };
+    }
+
+    private static String defaultValue(TypeMirror type) {
+        return switch (type.getKind()) {
+            case INT, LONG -> "0";
+            case DOUBLE -> "0.0";
+            case FLOAT -> "0.0f";
+            case BOOLEAN -> "false";
+            default -> "null";
+        };
+    }
+
+    private TypeMirror listElement(TypeMirror type) {
+        if (type instanceof DeclaredType declared && erasure(type).equals("java.util.List")
+                && declared.getTypeArguments().size() == 1) {
+            return declared.getTypeArguments().get(0);
+        }
+        return null;
+    }
+
+    // Тип с @GenerateJsonCodec, для которого уже есть или будет кодек
+    private TypeElement codecType(TypeMirror type, Property property) throws UnsupportedTypeException {
+        if (type instanceof DeclaredType declared && declared.asElement() instanceof TypeElement element
+                && element.getAnnotationMirrors().stream().anyMatch(
+                mirror -> mirror.getAnnotationType().toString().equals(ANNOTATION))) {
+            return element;
+        }
+        throw unsupported(property);
+    }
+
+    private UnsupportedTypeException unsupported(Property property) {
+        return new UnsupportedTypeException("Unsupported type " + property.type() + " of property "
+                + property.name() + ": use primitives, boxed primitives, String, UUID, types annotated "
+                + "with @GenerateJsonCodec or List of them", null);
+    }
+
+    private String erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    // Outer.Inner -> Outer_InnerJsonCodec в пакете Outer
+    static String codecName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing instanceof TypeElement outer) {
+            name.insert(0, outer.getSimpleName() + "_");
+            enclosing = outer.getEnclosingElement();
+        }
+        PackageElement packageElement = (PackageElement) enclosing;
+        return (packageElement.isUnnamed() ? "" : packageElement.getQualifiedName() + ".") + name + "JsonCodec";
+    }
+
+    // dateCreated -> DATE_CREATED
+    private static String constant(Property property) {
+        return property.name().replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT);
+    }
+
+    private void writeServices() {
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICES);
+            try (Writer writer = file.openWriter()) {
+                for (String codec : codecs) {
+                    writer.write(codec);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            error("Failed to write " + SERVICES + ": " + e, null);
+        }
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
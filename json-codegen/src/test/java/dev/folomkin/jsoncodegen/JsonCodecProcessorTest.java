@@ -0,0 +1,223 @@
+package dev.folomkin.jsoncodegen;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.folomkin.jsoncodegen.processor.JsonCodecProcessor;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class JsonCodecProcessorTest {
+
+    @GenerateJsonCodec
+    public record Item(String name, double price) {
+    }
+
+    @GenerateJsonCodec
+    public record Shelf(UUID id, String title, int capacity, Long version, boolean open,
+                        List<Item> items, Item featured) {
+    }
+
+    // Как Book: конструктор со свойствами, сеттеры и свойство, которое ставится только сеттером
+    @GenerateJsonCodec
+    public static class Note {
+        private int id;
+        private String text;
+        private String author;
+
+        public Note(int id, String text) {
+            this.id = id;
+            this.text = text;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+
+        public String getAuthor() {
+            return author;
+        }
+
+        public void setAuthor(String author) {
+            this.author = author;
+        }
+    }
+
+    @RestController
+    static class ShelfController {
+
+        @GetMapping("/shelves")
+        List<Shelf> shelves() {
+            return List.of(shelf());
+        }
+
+        @PostMapping("/notes")
+        Note echo(@RequestBody Note note) {
+            return note;
+        }
+    }
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final JsonFactory jsonFactory = objectMapper.getFactory();
+
+    private static Shelf shelf() {
+        return new Shelf(UUID.fromString("a396a088-172c-11ee-aa6f-4f6009552211"), "Молочное \"утро\"\n", 12,
+                null, true, List.of(new Item("Кефир", 89.5), new Item("Молоко", 0)), null);
+    }
+
+    @Test
+    void write_ProducesSameJsonAsObjectMapper() throws IOException {
+        // given
+        var note = new Note(7, "Заметка");
+        note.setAuthor("Автор");
+
+        // then
+        assertEquals(objectMapper.writeValueAsString(shelf()), write(JsonCodecProcessorTest_ShelfJsonCodec.INSTANCE, shelf()));
+        assertEquals(objectMapper.writeValueAsString(note), write(JsonCodecProcessorTest_NoteJsonCodec.INSTANCE, note));
+        assertEquals(objectMapper.writeValueAsString(List.of(note)),
+                write(new ListJsonCodec<>(JsonCodecProcessorTest_NoteJsonCodec.INSTANCE), List.of(note)));
+    }
+
+    @Test
+    void read_RestoresValueAndCoercesLikeJackson() throws IOException {
+        // when
+        var shelf = read(JsonCodecProcessorTest_ShelfJsonCodec.INSTANCE, write(JsonCodecProcessorTest_ShelfJsonCodec.INSTANCE, shelf()));
+        var note = read(JsonCodecProcessorTest_NoteJsonCodec.INSTANCE, """
+                {"unknown": {"nested": [1, 2]}, "author": "Автор", "id": "42", "text": null}
+                """);
+
+        // then
+        assertEquals(shelf(), shelf);
+        assertEquals(42, note.getId());
+        assertNull(note.getText());
+        assertEquals("Автор", note.getAuthor());
+        assertThrows(IOException.class, () -> read(JsonCodecProcessorTest_NoteJsonCodec.INSTANCE, "{\"id\": {}}"));
+        assertThrows(IOException.class, () -> read(JsonCodecProcessorTest_ShelfJsonCodec.INSTANCE, "{\"id\": \"not-a-uuid\"}"));
+    }
+
+    @Test
+    void load_FindsGeneratedCodecsThroughServiceLoader() {
+        // when
+        var codecs = JsonCodecs.load(getClass().getClassLoader());
+
+        // then
+        assertSame(JsonCodecProcessorTest_ItemJsonCodec.class, codecs.find(Item.class).getClass());
+        assertNotNull(codecs.find(Shelf.class));
+        assertNotNull(codecs.find(Note.class));
+        assertNull(codecs.find(String.class));
+    }
+
+    @Test
+    void converter_WritesAndReadsCodecTypesInSpringMvc() throws Exception {
+        // given
+        var converter = new JsonCodecHttpMessageConverter(jsonFactory, JsonCodecs.load(getClass().getClassLoader()));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new ShelfController())
+                .setMessageConverters(converter, new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+
+        // then
+        assertTrue(converter.canWrite(ShelfController.class.getDeclaredMethod("shelves").getGenericReturnType(),
+                List.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(List.class, List.class, MediaType.APPLICATION_JSON));
+        mockMvc.perform(get("/shelves"))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(MediaType.APPLICATION_JSON),
+                        content().json(objectMapper.writeValueAsString(List.of(shelf())), true)
+                );
+        mockMvc.perform(post("/notes").contentType("application/vnd.notes.v1+json")
+                        .content("{\"id\": 3, \"text\": \"Текст\", \"author\": \"Автор\"}"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.id").value(3),
+                        jsonPath("$.author").value("Автор")
+                );
+        mockMvc.perform(post("/notes").contentType(MediaType.APPLICATION_JSON).content("{\"id\": [}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void processor_RejectsJacksonAnnotations() throws IOException {
+        // given
+        var source = new SimpleJavaFileObject(URI.create("string:///Annotated.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return """
+                        @dev.folomkin.jsoncodegen.GenerateJsonCodec
+                        public record Annotated(
+                                @com.fasterxml.jackson.annotation.JsonProperty("full_name") String name) {
+                        }
+                        """;
+            }
+        };
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        var output = Files.createTempDirectory("json-codegen");
+
+        // when
+        var task = compiler.getTask(null, null, diagnostics,
+                List.of("-proc:only", "-classpath", System.getProperty("java.class.path"),
+                        "-s", output.toString()),
+                null, List.of(source));
+        task.setProcessors(List.of(new JsonCodecProcessor()));
+
+        // then
+        assertFalse(task.call());
+        assertTrue(diagnostics.getDiagnostics().stream().anyMatch(diagnostic ->
+                diagnostic.getKind() == Diagnostic.Kind.ERROR
+                        && diagnostic.getMessage(null).contains("ignores Jackson annotations")));
+    }
+
+    private <T> String write(JsonCodec<T> codec, T value) throws IOException {
+        var output = new ByteArrayOutputStream();
+        try (JsonGenerator generator = jsonFactory.createGenerator(output)) {
+            codec.write(generator, value);
+        }
+        return output.toString(java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    private <T> T read(JsonCodec<T> codec, String json) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            parser.nextToken();
+            return codec.read(parser);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package dev.folomkin.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Приложение-пример в отдельном процессе, запущенное из bootJar своего модуля.
+ * У модулей свои версии Spring Boot, поэтому в один classpath с генератором нагрузки они не собираются.
+ * Путь к jar передаёт сборка в свойстве {@code loadtest.jar.<модуль>}.
+ */
+final class ApplicationProcess implements AutoCloseable {
+
+    private static final Duration STARTUP = Duration.ofSeconds(60);
+    private static final Duration SHUTDOWN = Duration.ofSeconds(30);
+
+    private final Process process;
+    final int port;
+
+    private ApplicationProcess(Process process, int port) {
+        this.process = process;
+        this.port = port;
+    }
+
+    static ApplicationProcess start(String module, Map<String, Object> properties) throws IOException {
+        String jar = System.getProperty("loadtest.jar." + module);
+        if (jar == null || !Files.isRegularFile(Path.of(jar))) {
+            throw new IllegalStateException("No bootJar for " + module + " (" + jar + "), run gradle :loadtest:run");
+        }
+        int port = freePort();
+        List<String> command = new ArrayList<>(List.of(
+                ProcessHandle.current().info().command().orElse("java"),
+                "-Xms1g", "-Xmx1g", "-Dstdout.encoding=UTF-8",
+                "-jar", jar,
+                "--server.port=" + port));
+        properties.forEach((name, value) -> command.add("--" + name + "=" + value));
+        return new ApplicationProcess(new ProcessBuilder(command).inheritIO().start(), port);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Ждёт первого ответа без ошибки сервера на uri.
+     */
+    void awaitReady(HttpClient client, URI uri) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + STARTUP.toNanos();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(5)).build();
+        while (true) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with code " + process.exitValue());
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 500) {
+                    return;
+                }
+            } catch (IOException e) {
+                // порт ещё не слушается
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Application did not answer " + uri + " in " + STARTUP);
+            }
+            Thread.sleep(200);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(SHUTDOWN.toSeconds(), TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+}
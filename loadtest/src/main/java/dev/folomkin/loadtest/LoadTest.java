@@ -0,0 +1,145 @@
+package dev.folomkin.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Нагрузочный прогон приложений-примеров. Каждый сценарий несколько раз запускает своё приложение
+ * отдельным процессом ({@link ApplicationProcess}): на пуле платформенных потоков Tomcat, с виртуальными
+ * потоками ({@code spring.threads.virtual.enabled}) и, если у модуля есть WebFlux-контроллеры,
+ * на event loop Netty; прогревает его и держит заданную частоту запросов.
+ * В конце печатается сравнительная таблица.
+ * <pre>
+ * gradle :loadtest:run --args='--rate=2000 --duration=30s --warmup=10s --scenarios=books,products'
+ * </pre>
+ */
+public final class LoadTest {
+
+    record Options(int rate, Duration duration, Duration warmup, List<Scenario> scenarios) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (!arg.startsWith("--") || equals < 0) {
+                    throw new IllegalArgumentException("Expected --name=value, got " + arg);
+                }
+                values.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+            List<Scenario> scenarios = Arrays.stream(values.getOrDefault("scenarios", "greeting,books,products")
+                            .split(","))
+                    .map(name -> Scenario.valueOf(name.trim().toUpperCase(Locale.ROOT)))
+                    .toList();
+            return new Options(Integer.parseInt(values.getOrDefault("rate", "1000")),
+                    duration(values.getOrDefault("duration", "20s")),
+                    duration(values.getOrDefault("warmup", "5s")),
+                    scenarios);
+        }
+
+        private static Duration duration(String value) {
+            return Duration.parse("PT" + value.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    enum Stack {
+        PLATFORM("платформенные"), VIRTUAL("виртуальные"), REACTIVE("event loop Netty");
+
+        final String title;
+
+        Stack(String title) {
+            this.title = title;
+        }
+    }
+
+    record Run(Scenario scenario, Stack stack, OpenModelLoad.Result result) {
+    }
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Options options = Options.parse(args);
+        List<Run> runs = new ArrayList<>();
+        // генератору свои потоки, чтобы он не делил пул с сервером
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(4);
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientExecutor)
+                    .build();
+            OpenModelLoad load = new OpenModelLoad(client);
+            for (Scenario scenario : options.scenarios()) {
+                for (Stack stack : Stack.values()) {
+                    if (stack != Stack.REACTIVE || scenario.reactive) {
+                        runs.add(new Run(scenario, stack, run(client, load, scenario, stack, options)));
+                    }
+                }
+            }
+        } finally {
+            clientExecutor.shutdownNow();
+        }
+        System.out.println();
+        System.out.printf(Locale.ROOT, "Open model, %d req/s for %ds after %ds warm-up%n%n", options.rate(),
+                options.duration().toSeconds(), options.warmup().toSeconds());
+        System.out.println(table(runs));
+    }
+
+    private static OpenModelLoad.Result run(HttpClient client, OpenModelLoad load, Scenario scenario, Stack stack,
+                                            Options options) throws IOException, InterruptedException {
+        Map<String, Object> properties = new HashMap<>(scenario.properties);
+        properties.put("spring.application.name", scenario.module);
+        properties.put("spring.threads.virtual.enabled", stack == Stack.VIRTUAL);
+        properties.put("spring.main.web-application-type", stack == Stack.REACTIVE ? "reactive" : "servlet");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        try (ApplicationProcess application = ApplicationProcess.start(scenario.module, properties)) {
+            int port = application.port;
+            application.awaitReady(client, scenario.uri(port, 0));
+            System.out.printf("%s on %s, port %d: warming up%n", scenario, stack, port);
+            load.run(request -> scenario.uri(port, request), options.rate(), options.warmup());
+            OpenModelLoad.Result result = load.run(request -> scenario.uri(port, request), options.rate(),
+                    options.duration());
+            System.out.printf(Locale.ROOT, "%s on %s: %.0f req/s, p99 %.2f ms, errors %.2f%% (%d failed, %d timed out)%n",
+                    scenario, stack,
+                    result.throughput(),
+                    result.latencies().getValueAtPercentile(99) / 1e3,
+                    result.errorRate(), result.errors(), result.timeouts());
+            if (result.failures().getTotalCount() > 0) {
+                System.out.printf(Locale.ROOT, "%s on %s: failed requests p50 %.2f ms, max %.2f ms%n", scenario, stack,
+                        result.failures().getValueAtPercentile(50) / 1e3,
+                        result.failures().getMaxValue() / 1e3);
+            }
+            return result;
+        }
+    }
+
+    static String table(List<Run> runs) {
+        StringBuilder table = new StringBuilder();
+        table.append("| Сценарий | Потоки | Запросов/с | p50, мс | p99, мс | p99.9, мс | Макс., мс | Ошибки, % | Ошибки | Таймауты | Сброшено |\n");
+        table.append("|---|---|--:|--:|--:|--:|--:|--:|--:|--:|--:|\n");
+        for (Run run : runs) {
+            OpenModelLoad.Result result = run.result();
+            Histogram latencies = result.latencies();
+            table.append(String.format(Locale.ROOT, "| %s `%s` | %s | %.0f | %.2f | %.2f | %.2f | %.2f | %.2f | %d | %d | %d |%n",
+                    run.scenario().module, run.scenario().endpoint, run.stack().title,
+                    result.throughput(),
+                    latencies.getValueAtPercentile(50) / 1e3,
+                    latencies.getValueAtPercentile(99) / 1e3,
+                    latencies.getValueAtPercentile(99.9) / 1e3,
+                    latencies.getMaxValue() / 1e3,
+                    result.errorRate(), result.errors(), result.timeouts(), result.dropped()));
+        }
+        return table.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package dev.folomkin.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+
+/**
+ * Открытая модель нагрузки: запросы уходят по расписанию с заданной частотой,
+ * не дожидаясь ответов на предыдущие. Задержка считается от запланированного
+ * момента отправки, а не от фактического, поэтому отставание генератора или
+ * очередь на сервере не прячутся (coordinated omission). Неудачные запросы
+ * пишутся в отдельную гистограмму: быстрые ошибки не должны улучшать процентили.
+ */
+final class OpenModelLoad {
+
+    // больше запросов в полёте считаем перегрузкой и не отправляем
+    private static final int MAX_IN_FLIGHT = 20_000;
+
+    record Result(Histogram latencies, Histogram failures, long sent, long completed, long errors, long timeouts,
+                  long dropped, Duration elapsed) {
+
+        double throughput() {
+            return completed * 1e9 / Math.max(elapsed.toNanos(), 1);
+        }
+
+        /**
+         * Доля отправленных запросов, закончившихся ошибкой или таймаутом, в процентах.
+         */
+        double errorRate() {
+            return (errors + timeouts) * 100.0 / Math.max(sent, 1);
+        }
+    }
+
+    private final HttpClient client;
+
+    OpenModelLoad(HttpClient client) {
+        this.client = client;
+    }
+
+    Result run(LongFunction<URI> target, int rate, Duration duration) {
+        Recorder recorder = new Recorder(3);
+        Recorder failures = new Recorder(3);
+        AtomicLong completed = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong timeouts = new AtomicLong();
+        AtomicLong inFlight = new AtomicLong();
+        long dropped = 0;
+        double interval = 1e9 / rate;
+        long total = Math.max(1, (long) (duration.toNanos() / interval));
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long intended = start + (long) (i * interval);
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (inFlight.get() >= MAX_IN_FLIGHT) {
+                dropped++;
+                continue;
+            }
+            inFlight.incrementAndGet();
+            HttpRequest request = HttpRequest.newBuilder(target.apply(i))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        long micros = Math.max(1, (System.nanoTime() - intended) / 1_000);
+                        if (failure == null && response.statusCode() < 400) {
+                            recorder.recordValue(micros);
+                            completed.incrementAndGet();
+                        } else {
+                            failures.recordValue(micros);
+                            (isTimeout(failure) ? timeouts : errors).incrementAndGet();
+                        }
+                        inFlight.decrementAndGet();
+                    });
+        }
+        awaitInFlight(inFlight);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        return new Result(recorder.getIntervalHistogram(), failures.getIntervalHistogram(), total - dropped,
+                completed.get(), errors.get(), timeouts.get(), dropped, elapsed);
+    }
+
+    private static boolean isTimeout(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+        return cause instanceof HttpTimeoutException;
+    }
+
+    private static void awaitInFlight(AtomicLong inFlight) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(35);
+        while (inFlight.get() > 0) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException(new TimeoutException(inFlight.get() + " requests never completed"));
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+}
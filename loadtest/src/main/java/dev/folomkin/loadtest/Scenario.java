@@ -0,0 +1,52 @@
+package dev.folomkin.loadtest;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Сценарий нагрузки: какой модуль запустить, с какими настройками и куда стрелять.
+ */
+enum Scenario {
+
+    GREETING("mockito-demo", "/greeting", false, Map.of()) {
+        @Override
+        String path(long request) {
+            return "/greeting";
+        }
+    },
+    // spring-boot-starter-data-jpa у модуля есть, а базы нет и репозиториев тоже
+    BOOKS("mockito-springboot-demo", "/books/{id}", true, Map.of("books.storage", "objects",
+            "spring.autoconfigure.exclude", "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration,"
+                    + "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration")) {
+        @Override
+        String path(long request) {
+            // демо-каталог: книги 1, 2 и 3
+            return "/books/" + (request % 3 + 1);
+        }
+    },
+    PRODUCTS("mockmvc-openapi", "/api/catalogue/products", true, Map.of("catalogue.products.log", "")) {
+        @Override
+        String path(long request) {
+            return "/api/catalogue/products";
+        }
+    };
+
+    final String module;
+    final String endpoint;
+    // есть ли у модуля WebFlux-контроллеры
+    final boolean reactive;
+    final Map<String, Object> properties;
+
+    Scenario(String module, String endpoint, boolean reactive, Map<String, Object> properties) {
+        this.module = module;
+        this.endpoint = endpoint;
+        this.reactive = reactive;
+        this.properties = properties;
+    }
+
+    abstract String path(long request);
+
+    URI uri(int port, long request) {
+        return URI.create("http://localhost:" + port + path(request));
+    }
+}
@@ -0,0 +1,87 @@
+package dev.folomkin.mockito.argumentMatchers_demo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Индекс пользователей: поиск по имени и возрасту и выборка "возраст 25-34, имя с префиксом"
+ * против прохода по списку. Имена - случайные восемь латинских букв, возраст 18-80.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(jvmArgsAppend = "-Xmx4g")
+public class UserIndexBenchmark {
+
+    @Param({"1000000", "10000000"})
+    int size;
+
+    private List<User> users;
+    private IndexedUserService service;
+    private User[] probes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            char[] username = new char[8];
+            for (int c = 0; c < username.length; c++) {
+                username[c] = (char) ('a' + random.nextInt(26));
+            }
+            users.add(new User(new String(username), 18 + random.nextInt(63)));
+        }
+        service = new IndexedUserService(users);
+        probes = new User[1024];
+        for (int i = 0; i < probes.length; i++) {
+            User user = users.get(random.nextInt(size));
+            // копия, чтобы сравнение имён не сводилось к проверке ссылок
+            probes[i] = new User(new String(user.getUsername().toCharArray()), user.getAge());
+        }
+    }
+
+    private User nextProbe() {
+        return probes[next++ & (probes.length - 1)];
+    }
+
+    @Benchmark
+    public User findUser() {
+        User probe = nextProbe();
+        return service.findUser(probe.getUsername(), probe.getAge());
+    }
+
+    @Benchmark
+    public User findUserWrongAge() {
+        User probe = nextProbe();
+        return service.findUser(probe.getUsername(), probe.getAge() + 100);
+    }
+
+    @Benchmark
+    public void rangeWithPrefix(Blackhole blackhole) {
+        service.forEachByAgeBetween(25, 34, nextProbe().getUsername().substring(0, 3), blackhole::consume);
+    }
+
+    @Benchmark
+    public void rangeWithPrefixScan(Blackhole blackhole) {
+        String prefix = nextProbe().getUsername().substring(0, 3);
+        for (User user : users) {
+            if (user.getAge() >= 25 && user.getAge() <= 34 && user.getUsername().startsWith(prefix)) {
+                blackhole.consume(user);
+            }
+        }
+    }
+}
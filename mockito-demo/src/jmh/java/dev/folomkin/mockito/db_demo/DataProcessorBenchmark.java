@@ -0,0 +1,104 @@
+package dev.folomkin.mockito.db_demo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Одно значение за вызов против пакетного конвейера. Пакетные бенчмарки
+ * обрабатывают {@link #VALUES} значений за вызов, время в отчёте - на одно значение.
+ * {@code service=proxy} - сервис за JDK-прокси, как бин Spring за AOP-прокси:
+ * вызов не встраивается, а double возвращается упакованным.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DataProcessorBenchmark {
+
+    static final int VALUES = 1 << 20;
+
+    @State(Scope.Thread)
+    public static class Batch {
+
+        @Param({"4096", "1048576"})
+        int batchSize;
+
+        double[] buffer;
+
+        @Setup
+        public void setUp() {
+            buffer = new double[batchSize];
+        }
+    }
+
+    @Param({"direct", "proxy"})
+    String service;
+
+    private DataProcessor processor;
+
+    @Setup
+    public void setUp() {
+        DataService target = new DataService() {
+            private double value = 21.5;
+
+            @Override
+            public double retrieveData() {
+                return value += 0.5;
+            }
+
+            @Override
+            public int retrieveData(double[] target, int offset, int length) {
+                double next = value;
+                for (int i = offset; i < offset + length; i++) {
+                    target[i] = next += 0.5;
+                }
+                value = next;
+                return length;
+            }
+
+            @Override
+            public void printSum(double input1, double input2) {
+            }
+        };
+        if (service.equals("proxy")) {
+            target = proxy(target);
+        }
+        processor = new DataProcessor(target);
+    }
+
+    private static DataService proxy(DataService target) {
+        return (DataService) Proxy.newProxyInstance(DataService.class.getClassLoader(),
+                new Class<?>[]{DataService.class}, (proxy, method, args) -> method.invoke(target, args));
+    }
+
+    @Benchmark
+    public double processData() {
+        return processor.processData();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public double processDataLoop() {
+        double sum = 0;
+        for (int i = 0; i < VALUES; i++) {
+            sum += processor.processData();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public DataProcessor.Summary processAll(Batch batch) {
+        return processor.processAll(VALUES, batch.buffer, (values, length) -> {
+        });
+    }
+}
@@ -0,0 +1,174 @@
+package dev.folomkin.mockito.argumentMatchers_demo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Неизменяемый индекс пользователей в памяти.
+ * Пользователи лежат в порядке (age, username); рядом хранятся примитивные колонки:
+ * возраст, первые четыре символа имени, упакованные в long, и цепочки одинаковых имён.
+ * Поиск по имени идёт через хеш-таблицу с открытой адресацией, диапазоны по возрасту
+ * и префиксу имени - бинарным поиском по колонкам, так что объекты User
+ * трогаются только для совпавших записей.
+ * <p>
+ * Имя и возраст запоминаются при построении: последующие setUsername/setAge индекс не видит.
+ */
+public class IndexedUserService implements ArgumentMatchers_UserService {
+
+    private static final int KEY_CHARS = 4;
+
+    private final User[] users;
+    private final String[] usernames;
+    private final int[] ages;
+    private final long[] keys;
+    // позиция + 1 первого пользователя с таким именем, 0 - пустой слот
+    private final int[] table;
+    // позиция + 1 следующего пользователя с тем же именем, 0 - конец цепочки
+    private final int[] sameName;
+    private final int mask;
+
+    public IndexedUserService(Collection<User> source) {
+        User[] sorted = source.toArray(new User[0]);
+        for (User user : sorted) {
+            if (user.getUsername() == null) {
+                throw new IllegalArgumentException("username is required");
+            }
+        }
+        Arrays.parallelSort(sorted, Comparator.comparingInt(User::getAge).thenComparing(User::getUsername));
+        int size = sorted.length;
+        this.users = sorted;
+        this.usernames = new String[size];
+        this.ages = new int[size];
+        this.keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            usernames[i] = sorted[i].getUsername();
+            ages[i] = sorted[i].getAge();
+            keys[i] = key(usernames[i]);
+        }
+        int capacity = Integer.highestOneBit(Math.max(4, size * 2 - 1)) << 1;
+        this.table = new int[capacity];
+        this.sameName = new int[size];
+        this.mask = capacity - 1;
+        // с конца, чтобы цепочка шла по возрастанию возраста
+        for (int position = size - 1; position >= 0; position--) {
+            int slot = slotOf(usernames[position], keys[position]);
+            sameName[position] = table[slot];
+            table[slot] = position + 1;
+        }
+    }
+
+    public int size() {
+        return users.length;
+    }
+
+    @Override
+    public User findUser(String username, int age) {
+        if (username == null) {
+            return null;
+        }
+        int slot = slotOf(username, key(username));
+        for (int position = table[slot] - 1; position >= 0; position = sameName[position] - 1) {
+            if (ages[position] == age) {
+                return users[position];
+            }
+            if (ages[position] > age) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Пользователи с возрастом в [minAge, maxAge] и именем, начинающимся с usernamePrefix,
+     * в порядке (age, username).
+     */
+    public List<User> findByAgeBetween(int minAge, int maxAge, String usernamePrefix) {
+        List<User> result = new ArrayList<>();
+        forEachByAgeBetween(minAge, maxAge, usernamePrefix, result::add);
+        return result;
+    }
+
+    public void forEachByAgeBetween(int minAge, int maxAge, String usernamePrefix, Consumer<User> action) {
+        String prefix = usernamePrefix == null ? "" : usernamePrefix;
+        long prefixKey = key(prefix);
+        long prefixMask = prefix.length() >= KEY_CHARS ? -1L : ~(-1L >>> (16 * prefix.length()));
+        int position = lowerBound(minAge);
+        while (position < ages.length && ages[position] <= maxAge) {
+            int end = lowerBound(ages[position] + 1L);
+            // внутри одного возраста имена отсортированы: ищем начало префикса и идём до первого несовпадения
+            for (int i = lowerBound(position, end, prefixKey, prefix); i < end; i++) {
+                if ((keys[i] & prefixMask) != prefixKey
+                        || (prefix.length() > KEY_CHARS && !usernames[i].startsWith(prefix))) {
+                    break;
+                }
+                action.accept(users[i]);
+            }
+            position = end;
+        }
+    }
+
+    // Первая позиция с возрастом не меньше age
+    private int lowerBound(long age) {
+        int low = 0;
+        int high = ages.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ages[middle] < age) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Первая позиция в [from, to) с именем не меньше prefix; строки сравниваются только при равных ключах
+    private int lowerBound(int from, int to, long prefixKey, String prefix) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = Long.compareUnsigned(keys[middle], prefixKey);
+            if (comparison == 0 && prefix.length() > KEY_CHARS) {
+                comparison = usernames[middle].compareTo(prefix);
+            }
+            if (comparison < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int slotOf(String username, long key) {
+        int slot = mix(username.hashCode()) & mask;
+        int position;
+        while ((position = table[slot]) != 0) {
+            // ключ отсекает почти все чужие имена без обращения к строке
+            if (keys[position - 1] == key && usernames[position - 1].equals(username)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Первые четыре UTF-16 символа, старший - в старших битах; порядок ключей совпадает с String.compareTo
+    static long key(String username) {
+        long key = 0;
+        for (int i = 0; i < KEY_CHARS; i++) {
+            key = key << 16 | (i < username.length() ? username.charAt(i) : 0);
+        }
+        return key;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
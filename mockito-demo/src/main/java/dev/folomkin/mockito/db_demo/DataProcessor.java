@@ -1,15 +1,131 @@
 package dev.folomkin.mockito.db_demo;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 public class DataProcessor {
 
+    // меньшие куски не окупают постановку задачи в ForkJoinPool
+    static final int PARALLEL_THRESHOLD = 1 << 15;
+
+    /**
+     * Итог по обработанным значениям. Складывается из частичных итогов кусков,
+     * поэтому считается за тот же проход, что и обработка.
+     */
+    public record Summary(long count, double sum, double min, double max) {
+
+        public static final Summary EMPTY = new Summary(0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
+
+        public Summary plus(Summary other) {
+            return new Summary(count + other.count, sum + other.sum, Math.min(min, other.min),
+                    Math.max(max, other.max));
+        }
+
+        public double average() {
+            return count == 0 ? 0 : sum / count;
+        }
+    }
+
+    @FunctionalInterface
+    public interface BatchConsumer {
+        void accept(double[] values, int length);
+    }
+
     final DataService dataService;
+    private final ForkJoinPool pool;
 
     public DataProcessor(DataService dataService) {
+        this(dataService, ForkJoinPool.commonPool());
+    }
+
+    public DataProcessor(DataService dataService, ForkJoinPool pool) {
         this.dataService = dataService;
+        this.pool = pool;
     }
 
     public double processData() {
         return dataService.retrieveData() * 2;
     }
 
+    /**
+     * Пакетный {@link #processData()}: заполняет target[offset, offset + length) значениями
+     * сервиса, умноженными на 2. Длинная пачка делится на куски, которые обрабатываются
+     * параллельно в ForkJoinPool прямо в массиве, без объектов на значение.
+     */
+    public Summary processData(double[] target, int offset, int length) {
+        int read = dataService.retrieveData(target, offset, length);
+        if (read <= PARALLEL_THRESHOLD) {
+            return process(target, offset, offset + read);
+        }
+        return pool.invoke(new ChunkTask(target, offset, offset + read));
+    }
+
+    /**
+     * Конвейер: до count значений читаются пачками по buffer.length, каждая пачка
+     * обрабатывается и отдаётся consumer, пока buffer не перезаписан следующей.
+     * Нарастающая сумма после каждой пачки сообщается через {@link DataService#printSum}.
+     *
+     * @throws IllegalArgumentException если buffer пустой: в него не прочитать ни одного значения
+     */
+    public Summary processAll(long count, double[] buffer, BatchConsumer consumer) {
+        if (buffer.length == 0) {
+            throw new IllegalArgumentException("Buffer must not be empty");
+        }
+        Summary total = Summary.EMPTY;
+        while (total.count() < count) {
+            int length = (int) Math.min(buffer.length, count - total.count());
+            Summary batch = processData(buffer, 0, length);
+            if (batch.count() > 0) {
+                consumer.accept(buffer, (int) batch.count());
+                dataService.printSum(total.sum(), batch.sum());
+                total = total.plus(batch);
+            }
+            if (batch.count() < length) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private static Summary process(double[] values, int from, int to) {
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            double value = values[i] * 2;
+            values[i] = value;
+            sum += value;
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+        }
+        return new Summary(to - from, sum, min, max);
+    }
+
+    private static final class ChunkTask extends RecursiveTask<Summary> {
+        private final double[] values;
+        private final int from;
+        private final int to;
+
+        ChunkTask(double[] values, int from, int to) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Summary compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return process(values, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(values, from, middle);
+            left.fork();
+            Summary right = new ChunkTask(values, middle, to).compute();
+            return left.join().plus(right);
+        }
+    }
 }
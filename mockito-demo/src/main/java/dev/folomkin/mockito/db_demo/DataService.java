@@ -1,8 +1,46 @@
 package dev.folomkin.mockito.db_demo;
 
+import java.nio.DoubleBuffer;
+
 public interface DataService {
     double retrieveData();
 
     void printSum(double input1, double input2);
-}
 
+    /**
+     * Заполняет target[offset, offset + length) следующими значениями.
+     * Возвращает число записанных значений; меньше length - источник исчерпан.
+     * Реализация по умолчанию вызывает {@link #retrieveData()} на каждое значение,
+     * источникам с пакетным чтением стоит её переопределить.
+     */
+    default int retrieveData(double[] target, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            target[i] = retrieveData();
+        }
+        return length;
+    }
+
+    /**
+     * То же для буфера: заполняет его остаток и сдвигает позицию.
+     */
+    default int retrieveData(DoubleBuffer target) {
+        int read = 0;
+        if (target.hasArray()) {
+            read = retrieveData(target.array(), target.arrayOffset() + target.position(), target.remaining());
+        } else {
+            // direct-буфер заполняется через небольшой промежуточный массив
+            double[] chunk = new double[Math.min(target.remaining(), 8192)];
+            while (read < target.remaining()) {
+                int wanted = Math.min(chunk.length, target.remaining() - read);
+                int count = retrieveData(chunk, 0, wanted);
+                target.put(target.position() + read, chunk, 0, count);
+                read += count;
+                if (count < wanted) {
+                    break;
+                }
+            }
+        }
+        target.position(target.position() + read);
+        return read;
+    }
+}
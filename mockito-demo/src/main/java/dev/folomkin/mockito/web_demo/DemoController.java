@@ -8,10 +8,10 @@ import org.springframework.web.bind.annotation.ResponseBody;
 @Controller
 public class DemoController {
 
+    private static final PreEncodedBody GREETING = PreEncodedBody.text("Hello, World");
+
     @RequestMapping("/")
-    public @ResponseBody String greeting() {
-        return "Hello, World";
+    public @ResponseBody PreEncodedBody greeting() {
+        return GREETING;
     }
 }
-
-
@@ -9,13 +9,15 @@ import org.springframework.web.bind.annotation.ResponseBody;
 public class GreetingController {
 
     private final GreetingService service;
+    // перекодируется, только если greet() вернул другую строку
+    private final PreEncodedBody.Cache<String> greeting = new PreEncodedBody.Cache<>(PreEncodedBody::text);
 
     public GreetingController(GreetingService service) {
         this.service = service;
     }
 
     @RequestMapping("/greeting")
-    public @ResponseBody String greeting() {
-        return service.greet();
+    public @ResponseBody PreEncodedBody greeting() {
+        return greeting.get(service.greet());
     }
 }
@@ -0,0 +1,83 @@
+package dev.folomkin.mockito.web_demo;
+
+import org.springframework.http.MediaType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Заранее закодированное тело ответа вместе с готовыми значениями заголовков.
+ * Обработчик, вернувший его, минует согласование типа и конвертеры:
+ * {@link PreEncodedBodyReturnValueHandler} пишет байты в ответ как есть.
+ */
+public final class PreEncodedBody {
+
+    private final byte[] bytes;
+    private final MediaType mediaType;
+    private final String contentType;
+
+    private PreEncodedBody(byte[] bytes, MediaType contentType) {
+        this.bytes = bytes;
+        this.mediaType = contentType;
+        this.contentType = contentType.toString();
+    }
+
+    public static PreEncodedBody of(MediaType contentType, ByteBuffer body) {
+        byte[] bytes = new byte[body.remaining()];
+        body.duplicate().get(bytes);
+        return new PreEncodedBody(bytes, contentType);
+    }
+
+    public static PreEncodedBody text(String text) {
+        return new PreEncodedBody(text.getBytes(StandardCharsets.UTF_8),
+                new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8));
+    }
+
+    public ByteBuffer body() {
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public int contentLength() {
+        return bytes.length;
+    }
+
+    MediaType mediaType() {
+        return mediaType;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    /**
+     * Тело для значения, которое меняется редко: кодируется заново,
+     * только когда значение отличается от предыдущего.
+     */
+    public static final class Cache<T> {
+
+        private record Entry<T>(T value, PreEncodedBody body) {
+        }
+
+        private final Function<? super T, PreEncodedBody> encoder;
+        private volatile Entry<T> entry;
+
+        public Cache(Function<? super T, PreEncodedBody> encoder) {
+            this.encoder = encoder;
+        }
+
+        public PreEncodedBody get(T value) {
+            Entry<T> cached = entry;
+            if (cached == null || !Objects.equals(cached.value(), value)) {
+                cached = new Entry<>(value, encoder.apply(value));
+                entry = cached;
+            }
+            return cached.body();
+        }
+    }
+}
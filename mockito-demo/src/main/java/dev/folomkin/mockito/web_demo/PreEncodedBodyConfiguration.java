@@ -0,0 +1,32 @@
+package dev.folomkin.mockito.web_demo;
+
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ставит {@link PreEncodedBodyReturnValueHandler} перед стандартными обработчиками.
+ * Добавленный через {@code WebMvcConfigurer.addReturnValueHandlers} он встаёт в конец,
+ * и метод с {@code @ResponseBody} раньше забирает RequestResponseBodyMethodProcessor.
+ */
+@Configuration
+public class PreEncodedBodyConfiguration implements WebMvcRegistrations {
+
+    @Override
+    public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+        return new RequestMappingHandlerAdapter() {
+            @Override
+            public void afterPropertiesSet() {
+                super.afterPropertiesSet();
+                List<HandlerMethodReturnValueHandler> handlers = new ArrayList<>();
+                handlers.add(new PreEncodedBodyReturnValueHandler());
+                handlers.addAll(getReturnValueHandlers());
+                setReturnValueHandlers(handlers);
+            }
+        };
+    }
+}
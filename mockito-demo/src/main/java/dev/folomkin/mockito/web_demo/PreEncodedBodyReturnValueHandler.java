@@ -0,0 +1,55 @@
+package dev.folomkin.mockito.web_demo;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.HeaderContentNegotiationStrategy;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.util.List;
+
+/**
+ * Пишет {@link PreEncodedBody} прямо в ответ сервлета: без конвертеров
+ * и перекодирования строки на каждый запрос. Тип тела уже известен,
+ * поэтому от согласования остаётся проверка Accept: не подходит - 406.
+ */
+public class PreEncodedBodyReturnValueHandler implements HandlerMethodReturnValueHandler {
+
+    private final HeaderContentNegotiationStrategy accept = new HeaderContentNegotiationStrategy();
+
+    @Override
+    public boolean supportsReturnType(MethodParameter returnType) {
+        return PreEncodedBody.class.isAssignableFrom(returnType.getParameterType());
+    }
+
+    @Override
+    public void handleReturnValue(Object returnValue, MethodParameter returnType,
+                                  ModelAndViewContainer mavContainer, NativeWebRequest webRequest) throws Exception {
+        mavContainer.setRequestHandled(true);
+        HttpServletResponse response = webRequest.getNativeResponse(HttpServletResponse.class);
+        if (returnValue == null || response == null) {
+            return;
+        }
+        PreEncodedBody body = (PreEncodedBody) returnValue;
+        if (!accepts(accept.resolveMediaTypes(webRequest), body.mediaType())) {
+            throw new HttpMediaTypeNotAcceptableException(List.of(body.mediaType()));
+        }
+        response.setContentType(body.contentType());
+        response.setContentLength(body.contentLength());
+        response.getOutputStream().write(body.bytes());
+    }
+
+    // Решает самый точный тип из Accept: text/plain;q=0 запрещает text/plain и при */*
+    private static boolean accepts(List<MediaType> acceptable, MediaType mediaType) {
+        MediaType match = null;
+        for (MediaType candidate : acceptable) {
+            if (candidate.includes(mediaType) && (match == null || match.includes(candidate))) {
+                match = candidate;
+            }
+        }
+        return match != null && match.getQualityValue() > 0;
+    }
+}
@@ -43,6 +43,22 @@ class TestingWebApplicationTests {
                 );
     }
 
+    // Метрики обработчиков из библиотеки instrumentation
+    @Test
+    void shouldExposeHandlerMetrics() throws Exception {
+        this.mockMvc.perform(get("/greeting"))
+                .andExpect(status().isOk());
+
+        this.mockMvc.perform(get("/internal/metrics"))
+                .andExpect(status().isOk())
+                .andExpect(
+                        content()
+                                .string(containsString(
+                                        "http_handler_duration_seconds_count{handler=\"GreetingController.greeting\","
+                                                + "method=\"GET\",route=\"/greeting\"}"))
+                );
+    }
+
     // Mock interface
     @Test
     void testMockInterface() {
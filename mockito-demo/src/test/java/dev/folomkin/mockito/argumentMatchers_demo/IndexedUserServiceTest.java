@@ -0,0 +1,68 @@
+package dev.folomkin.mockito.argumentMatchers_demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class IndexedUserServiceTest {
+
+    @Test
+    public void testFindUserByUsernameAndAge() {
+        User alice = new User("alice", 30);
+        User olderAlice = new User("alice", 41);
+        User bob = new User("bob", 30);
+        IndexedUserService service = new IndexedUserService(List.of(olderAlice, bob, alice));
+
+        assertSame(alice, service.findUser("alice", 30));
+        assertSame(olderAlice, service.findUser("alice", 41));
+        assertSame(bob, service.findUser("bob", 30));
+        assertNull(service.findUser("alice", 35));
+        assertNull(service.findUser("carol", 30));
+        assertNull(service.findUser(null, 30));
+    }
+
+    @Test
+    public void testRangeQueriesMatchFullScan() {
+        Random random = new Random(42);
+        String[] prefixes = {"", "a", "ab", "abc", "abcd", "abcde", "abcdef", "b\uffff", "zz"};
+        String alphabet = "abcz\uffff";
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder username = new StringBuilder();
+            for (int length = random.nextInt(8); length >= 0; length--) {
+                username.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            users.add(new User(username.toString(), 18 + random.nextInt(60)));
+        }
+        IndexedUserService service = new IndexedUserService(users);
+
+        Comparator<User> order = Comparator.comparingInt(User::getAge).thenComparing(User::getUsername);
+        for (String prefix : prefixes) {
+            int minAge = 18 + random.nextInt(60);
+            int maxAge = minAge + random.nextInt(15);
+            List<User> expected = users.stream()
+                    .filter(user -> user.getAge() >= minAge && user.getAge() <= maxAge)
+                    .filter(user -> user.getUsername().startsWith(prefix))
+                    .sorted(order)
+                    .toList();
+            List<User> actual = service.findByAgeBetween(minAge, maxAge, prefix);
+            assertEquals(expected.size(), actual.size(), prefix);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(0, order.compare(expected.get(i), actual.get(i)), prefix);
+            }
+        }
+        for (User user : users.subList(0, 1000)) {
+            User found = service.findUser(user.getUsername(), user.getAge());
+            assertEquals(user.getUsername(), found.getUsername());
+            assertEquals(user.getAge(), found.getAge());
+        }
+        assertEquals(0, service.findByAgeBetween(100, 120, "").size());
+    }
+}
@@ -0,0 +1,109 @@
+package dev.folomkin.mockito.db_demo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.DoubleBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+
+public class DataProcessorTest {
+
+    @Mock
+    DataService mockDataService;
+
+    private ForkJoinPool pool;
+    private AutoCloseable mocks;
+
+    @BeforeEach
+    public void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        pool.shutdown();
+        mocks.close();
+    }
+
+    @Test
+    public void testDefaultBatchDelegatesToSingleValue() {
+        Mockito.when(mockDataService.retrieveData()).thenReturn(1.5, 2.5, 3.5, 1.5, 2.5, 3.5);
+        Mockito.when(mockDataService.retrieveData(any(double[].class), anyInt(), anyInt())).thenCallRealMethod();
+        Mockito.when(mockDataService.retrieveData(any(DoubleBuffer.class))).thenCallRealMethod();
+
+        DoubleBuffer buffer = DoubleBuffer.allocate(4).position(1);
+        assertEquals(3, mockDataService.retrieveData(buffer));
+        assertArrayEquals(new double[]{0, 1.5, 2.5, 3.5}, buffer.array());
+
+        double[] values = new double[3];
+        DataProcessor.Summary summary = new DataProcessor(mockDataService, pool).processData(values, 0, 3);
+        assertArrayEquals(new double[]{3, 5, 7}, values);
+        assertEquals(new DataProcessor.Summary(3, 15, 3, 7), summary);
+    }
+
+    @Test
+    public void testProcessAllSplitsBatchesAndReportsRunningSum() {
+        int available = 2 * DataProcessor.PARALLEL_THRESHOLD * 3 + 10;
+        long[] next = {0};
+        // источник отдаёт 0, 1, 2... и заканчивается после available значений
+        Mockito.when(mockDataService.retrieveData(any(double[].class), anyInt(), anyInt())).thenAnswer(invocation -> {
+            double[] target = invocation.getArgument(0);
+            int offset = invocation.getArgument(1);
+            int length = (int) Math.min(invocation.<Integer>getArgument(2), available - next[0]);
+            for (int i = 0; i < length; i++) {
+                target[offset + i] = next[0]++;
+            }
+            return length;
+        });
+
+        double[] buffer = new double[2 * DataProcessor.PARALLEL_THRESHOLD + 1];
+        double[] checksum = {0};
+        DataProcessor.Summary total = new DataProcessor(mockDataService, pool)
+                .processAll(Long.MAX_VALUE, buffer, (values, length) -> {
+                    for (int i = 0; i < length; i++) {
+                        checksum[0] += values[i];
+                    }
+                });
+
+        double expectedSum = (double) available * (available - 1);
+        assertEquals(available, total.count());
+        assertEquals(expectedSum, total.sum());
+        assertEquals(expectedSum, checksum[0]);
+        assertEquals(0, total.min());
+        assertEquals(2.0 * (available - 1), total.max());
+
+        // нарастающая сумма после каждой пачки
+        InOrder inOrder = Mockito.inOrder(mockDataService);
+        double before = 0;
+        for (long from = 0; from < available; from += buffer.length) {
+            long to = Math.min(from + buffer.length, available);
+            double batchSum = (double) to * (to - 1) - (double) from * (from - 1);
+            inOrder.verify(mockDataService).printSum(before, batchSum);
+            before += batchSum;
+        }
+        inOrder.verifyNoMoreInteractions();
+        Mockito.verify(mockDataService, Mockito.never()).retrieveData();
+    }
+
+    @Test
+    public void testProcessAllRejectsEmptyBuffer() {
+        DataProcessor processor = new DataProcessor(mockDataService, pool);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> processor.processAll(10, new double[0], (values, length) -> {
+                }));
+        Mockito.verifyNoInteractions(mockDataService);
+    }
+}
@@ -4,13 +4,22 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(GreetingController.class)
@@ -36,4 +45,46 @@ public class WebMockTest {
                                 .string(containsString("Hello, Mock"))
                 );
     }
+
+    @Test
+    public void shouldWritePreEncodedBodyAndRefreshItWhenGreetingChanges() throws Exception {
+        when(greetingService.greet()).thenReturn("Привет", "Привет", "Hello, Mock");
+
+        for (String expected : new String[]{"Привет", "Привет", "Hello, Mock"}) {
+            this.mockMvc
+                    .perform(get("/greeting"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/plain;charset=UTF-8"))
+                    .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH,
+                            expected.getBytes(StandardCharsets.UTF_8).length))
+                    .andExpect(content().bytes(expected.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    @Test
+    public void shouldAnswerNotAcceptableWhenTextIsNotAccepted() throws Exception {
+        when(greetingService.greet()).thenReturn("Hello, Mock");
+
+        this.mockMvc
+                .perform(get("/greeting").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotAcceptable());
+        this.mockMvc
+                .perform(get("/greeting").header(HttpHeaders.ACCEPT, "text/plain;q=0, */*"))
+                .andExpect(status().isNotAcceptable());
+        this.mockMvc
+                .perform(get("/greeting").header(HttpHeaders.ACCEPT, "application/json, text/*;q=0.5"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Hello, Mock"));
+    }
+
+    @Test
+    public void shouldKeepBodyWhileGreetingIsUnchanged() {
+        when(greetingService.greet()).thenReturn(new String("Hello"), new String("Hello"), "Bye");
+        GreetingController controller = new GreetingController(greetingService);
+
+        PreEncodedBody first = controller.greeting();
+        assertSame(first, controller.greeting());
+        assertNotSame(first, controller.greeting());
+        assertEquals(ByteBuffer.wrap("Hello".getBytes(StandardCharsets.UTF_8)), first.body());
+    }
 }
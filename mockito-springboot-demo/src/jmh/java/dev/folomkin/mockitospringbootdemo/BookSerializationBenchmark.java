@@ -0,0 +1,66 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import dev.folomkin.jacksonformats.JacksonFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись Book ObjectMapper-ом, собранным как в Spring MVC, и сгенерированным {@link BookJsonCodec}
+ * в один и тот же генератор JSON, CBOR или Smile.
+ * Читать Book Jackson не умеет (нет конструктора для Jackson), поэтому только запись.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BookSerializationBenchmark {
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    JacksonFormat format;
+
+    private JsonFactory factory;
+    private ObjectWriter bookWriter;
+    private Book book;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+
+    @Setup
+    public void setUp() {
+        ObjectMapper mapper = format.objectMapper(Jackson2ObjectMapperBuilder.json());
+        factory = mapper.getFactory();
+        bookWriter = mapper.writerFor(Book.class);
+        book = new Book(1, "97 Things Every Java Programmer Should Know", "Kevlin Henney, Trisha Gee",
+                "OReilly Media, Inc.", "May 2020", "9781491952696", "Java");
+    }
+
+    @Benchmark
+    public int writeBookJackson() throws IOException {
+        out.reset();
+        try (JsonGenerator generator = factory.createGenerator(out)) {
+            bookWriter.writeValue(generator, book);
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public int writeBookGenerated() throws IOException {
+        out.reset();
+        try (JsonGenerator generator = factory.createGenerator(out)) {
+            BookJsonCodec.INSTANCE.write(generator, book);
+        }
+        return out.size();
+    }
+}
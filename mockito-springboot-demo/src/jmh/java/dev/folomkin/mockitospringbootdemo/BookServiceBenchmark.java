@@ -0,0 +1,70 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение каталога книг: поиск по id, полный обход и прежний линейный поиск stream-ом как точка отсчёта.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BookServiceBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    @Param({"OBJECTS", "COMPACT"})
+    BookCatalog.Storage storage;
+
+    private BookService service;
+    private List<Book> books;
+    private int[] probes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        books = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            books.add(new Book(i, "Title " + i, "Author " + i % 1000, "Publisher " + i % 50, "May 2020",
+                    "isbn-" + i, "Java"));
+        }
+        service = new BookService(new BookCatalogProperties(storage, null, null));
+        service.saveAll(books);
+        probes = new Random(42).ints(1024, 0, size).toArray();
+    }
+
+    private int nextId() {
+        return probes[next++ & (probes.length - 1)];
+    }
+
+    @Benchmark
+    public Book findOne() {
+        return service.findOne(nextId());
+    }
+
+    @Benchmark
+    public Book findOneStreamScan() {
+        int id = nextId();
+        return books.stream().filter(book -> book.getId() == id).findFirst().orElseThrow();
+    }
+
+    @Benchmark
+    public void findAll(Blackhole blackhole) {
+        for (Book book : service.findAll()) {
+            blackhole.consume(book);
+        }
+    }
+}
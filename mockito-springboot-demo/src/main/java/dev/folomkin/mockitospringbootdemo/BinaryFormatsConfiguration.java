@@ -0,0 +1,26 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import dev.folomkin.jacksonformats.JacksonFormat;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Конвертеры CBOR и Smile на ObjectMapper с настройками spring.jackson.*, как у JSON.
+ * Без них Spring MVC регистрирует свои, собранные без настроек Boot.
+ */
+@Configuration
+public class BinaryFormatsConfiguration {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(JacksonFormat.CBOR.objectMapper(builder));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(JacksonFormat.SMILE.objectMapper(builder));
+    }
+}
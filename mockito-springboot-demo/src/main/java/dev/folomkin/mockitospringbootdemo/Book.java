@@ -1,5 +1,9 @@
 package dev.folomkin.mockitospringbootdemo;
 
+import dev.folomkin.jsoncodegen.GenerateJsonCodec;
+
+// JSON пишет и читает сгенерированный BookJsonCodec
+@GenerateJsonCodec
 public class Book {
     private int id;
     private String title;
@@ -0,0 +1,268 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Неизменяемый снимок каталога: книги отсортированы по id,
+ * int-таблица с открытой адресацией отображает id в позицию.
+ * Как хранятся сами записи, решает наследник (см. {@link Storage}).
+ */
+public abstract class BookCatalog {
+
+    public enum Storage {
+        OBJECTS, COMPACT
+    }
+
+    protected final int[] ids;
+    private final int[] table;
+    private final int mask;
+
+    protected BookCatalog(int[] ids) {
+        this(ids, table(ids));
+    }
+
+    // Готовая таблица приходит из снимка на диске
+    protected BookCatalog(int[] ids, int[] table) {
+        if (Integer.bitCount(table.length) != 1 || table.length < ids.length) {
+            throw new IllegalArgumentException("Invalid id table of length " + table.length);
+        }
+        this.ids = ids;
+        this.table = table;
+        this.mask = table.length - 1;
+    }
+
+    static int[] table(int[] ids) {
+        int capacity = Integer.highestOneBit(Math.max(4, ids.length * 2 - 1)) << 1;
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < ids.length; i++) {
+            int slot = mix(ids[i]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+        return table;
+    }
+
+    int[] table() {
+        return table;
+    }
+
+    public static BookCatalog empty() {
+        return ObjectBookCatalog.EMPTY;
+    }
+
+    public static BookCatalog empty(Storage storage) {
+        return storage == Storage.COMPACT ? CompactBookCatalog.create() : ObjectBookCatalog.EMPTY;
+    }
+
+    public static BookCatalog of(Collection<Book> books) {
+        return empty().withAll(books);
+    }
+
+    public abstract Storage storage();
+
+    protected abstract Book bookAt(int position);
+
+    protected abstract Builder builder(int expectedSize);
+
+    protected interface Builder {
+
+        void copy(BookCatalog source, int position);
+
+        void add(Book book);
+
+        BookCatalog build();
+    }
+
+    public Book get(int id) {
+        int position = positionOf(id);
+        return position < 0 ? null : bookAt(position);
+    }
+
+    public boolean contains(int id) {
+        return positionOf(id) >= 0;
+    }
+
+    protected int positionOf(int id) {
+        int slot = mix(id) & mask;
+        int position;
+        while ((position = table[slot]) != 0) {
+            if (ids[position - 1] == id) {
+                return position - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public List<Book> asList() {
+        return new View();
+    }
+
+    public List<Book> page(Integer afterId, int limit) {
+        int from = 0;
+        if (afterId != null) {
+            from = Arrays.binarySearch(ids, afterId);
+            from = from >= 0 ? from + 1 : -from - 1;
+        }
+        int to = (int) Math.min((long) from + limit, ids.length);
+        return asList().subList(from, to);
+    }
+
+    public boolean hasAfter(int id) {
+        return ids.length > 0 && ids[ids.length - 1] > id;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public BookCatalog with(Book book) {
+        return withAll(List.of(book));
+    }
+
+    // Слияние по id: книги из books заменяют одноимённые, при повторе внутри books побеждает последняя
+    public BookCatalog withAll(Collection<Book> books) {
+        Book[] incoming = books.toArray(new Book[0]);
+        Arrays.sort(incoming, (a, b) -> Integer.compare(a.getId(), b.getId()));
+        Builder builder = builder(ids.length + incoming.length);
+        int position = 0;
+        for (int i = 0; i < incoming.length; i++) {
+            Book book = incoming[i];
+            if (i + 1 < incoming.length && incoming[i + 1].getId() == book.getId()) {
+                continue;
+            }
+            while (position < ids.length && ids[position] < book.getId()) {
+                builder.copy(this, position++);
+            }
+            if (position < ids.length && ids[position] == book.getId()) {
+                position++;
+            }
+            builder.add(book);
+        }
+        while (position < ids.length) {
+            builder.copy(this, position++);
+        }
+        return builder.build();
+    }
+
+    public BookCatalog without(int id) {
+        int skip = positionOf(id);
+        if (skip < 0) {
+            return this;
+        }
+        Builder builder = builder(ids.length - 1);
+        for (int position = 0; position < ids.length; position++) {
+            if (position != skip) {
+                builder.copy(this, position);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Сливает отсортированные части поверх base в раскладке base.
+     * При совпадении id побеждает более поздняя часть, части побеждают base.
+     */
+    public static BookCatalog merge(BookCatalog base, List<BookCatalog> parts) {
+        BookCatalog[] sources = new BookCatalog[parts.size() + 1];
+        sources[0] = base;
+        long total = base.size();
+        for (int i = 0; i < parts.size(); i++) {
+            sources[i + 1] = parts.get(i);
+            total += parts.get(i).size();
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Catalog is too large: " + total + " books");
+        }
+        Builder builder = base.builder((int) total);
+        int[] cursors = new int[sources.length];
+        // куча индексов источников по текущему id; при равных id сверху более поздний источник
+        int[] heap = new int[sources.length];
+        int heapSize = 0;
+        for (int source = 0; source < sources.length; source++) {
+            if (sources[source].size() > 0) {
+                heap[heapSize++] = source;
+                siftUp(heap, heapSize - 1, sources, cursors);
+            }
+        }
+        while (heapSize > 0) {
+            int source = heap[0];
+            int id = sources[source].ids[cursors[source]];
+            builder.copy(sources[source], cursors[source]);
+            // пропускаем более ранние версии той же книги
+            while (heapSize > 0 && sources[heap[0]].ids[cursors[heap[0]]] == id) {
+                int top = heap[0];
+                if (++cursors[top] == sources[top].size()) {
+                    heap[0] = heap[--heapSize];
+                }
+                siftDown(heap, heapSize, sources, cursors);
+            }
+        }
+        return builder.build();
+    }
+
+    private static boolean before(int a, int b, BookCatalog[] sources, int[] cursors) {
+        int idA = sources[a].ids[cursors[a]];
+        int idB = sources[b].ids[cursors[b]];
+        return idA < idB || (idA == idB && a > b);
+    }
+
+    private static void siftUp(int[] heap, int slot, BookCatalog[] sources, int[] cursors) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (!before(heap[slot], heap[parent], sources, cursors)) {
+                return;
+            }
+            int swap = heap[slot];
+            heap[slot] = heap[parent];
+            heap[parent] = swap;
+            slot = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, BookCatalog[] sources, int[] cursors) {
+        int slot = 0;
+        while (true) {
+            int left = slot * 2 + 1;
+            if (left >= size) {
+                return;
+            }
+            int first = left;
+            if (left + 1 < size && before(heap[left + 1], heap[left], sources, cursors)) {
+                first = left + 1;
+            }
+            if (!before(heap[first], heap[slot], sources, cursors)) {
+                return;
+            }
+            int swap = heap[slot];
+            heap[slot] = heap[first];
+            heap[first] = swap;
+            slot = first;
+        }
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private final class View extends AbstractList<Book> implements RandomAccess {
+
+        @Override
+        public Book get(int index) {
+            return bookAt(index);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+}
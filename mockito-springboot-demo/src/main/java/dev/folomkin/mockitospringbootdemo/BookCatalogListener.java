@@ -0,0 +1,32 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import java.io.IOException;
+
+/**
+ * Подписчик на изменения каталога. Вызывается под блокировкой записи BookService,
+ * поэтому события приходят строго по порядку.
+ */
+public interface BookCatalogListener {
+
+    void catalogReplaced(BookCatalog catalog);
+
+    void booksChanged(BookCatalog previous, BookCatalog current, int[] ids);
+
+    /**
+     * Имя секции в бинарном снимке; null - состояние не сохраняется и после старта строится заново.
+     */
+    default String snapshotSection() {
+        return null;
+    }
+
+    default void writeSnapshot(BookSnapshot.Writer writer) throws IOException {
+    }
+
+    /**
+     * Восстанавливает состояние для catalog из своей секции снимка.
+     * При false BookService откатывается на {@link #catalogReplaced(BookCatalog)}.
+     */
+    default boolean restoreSnapshot(BookCatalog catalog, BookSnapshot.Reader reader) {
+        return false;
+    }
+}
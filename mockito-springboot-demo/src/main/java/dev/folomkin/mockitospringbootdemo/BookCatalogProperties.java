@@ -0,0 +1,21 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+/**
+ * @param storage  раскладка каталога в памяти
+ * @param catalog  выгрузка (CSV или JSON Lines), загружаемая при старте вместо демо-книг
+ * @param snapshot бинарный снимок для быстрого старта: читается при старте, пишется при остановке
+ */
+@ConfigurationProperties(prefix = "books")
+public record BookCatalogProperties(@DefaultValue("objects") BookCatalog.Storage storage,
+                                    Path catalog,
+                                    Path snapshot) {
+
+    public static BookCatalogProperties defaults() {
+        return new BookCatalogProperties(BookCatalog.Storage.OBJECTS, null, null);
+    }
+}
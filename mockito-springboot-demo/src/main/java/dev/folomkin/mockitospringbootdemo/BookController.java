@@ -1,28 +1,178 @@
 package dev.folomkin.mockitospringbootdemo;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.folomkin.jacksonformats.JacksonFormat;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
 
 @RestController
 @RequestMapping("/books")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class BookController {
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+
+    static final int DEFAULT_SEARCH_SIZE = 10;
+
     private final BookService bookService;
+    private final BookSearchIndex searchIndex;
+    private final BookJsonCache jsonCache;
+    private final ObjectMapper objectMapper;
 
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, BookSearchIndex searchIndex, BookJsonCache jsonCache,
+                          ObjectMapper objectMapper) {
         this.bookService = bookService;
+        this.searchIndex = searchIndex;
+        this.jsonCache = jsonCache;
+        this.objectMapper = objectMapper;
     }
 
+    // Формат выбирается по Accept: JSON, CBOR или Smile
     @GetMapping
-    public List<Book> findAll() {
-        return bookService.findAll();
+    public ResponseEntity<?> findAll(@RequestParam(required = false) Integer limit,
+                                     @RequestParam(required = false) String cursor,
+                                     @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (limit == null && cursor == null) {
+            // If-None-Match с совпавшим ETag Spring превращает в 304 без тела
+            return cached(jsonCache.all(JacksonFormat.negotiate(accept)));
+        }
+        BookPage page = bookService.findPage(decodeCursor(cursor), pageSize(limit));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+        if (page.hasNext()) {
+            response.header(HttpHeaders.LINK, "<" + ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("limit", pageSize(limit))
+                    .replaceQueryParam("cursor", encodeCursor(page.nextAfterId()))
+                    .toUriString() + ">; rel=\"next\"");
+        }
+        return response.body(page.books());
+    }
+
+    // Потоковая выдача: книги пишутся в сокет по одной, весь ответ в памяти не собирается
+    @GetMapping(params = "stream=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll(@RequestParam(required = false) Integer limit,
+                                                           @RequestParam(required = false) String cursor) {
+        List<Book> books = streamedBooks(limit, cursor);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> {
+                    try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                        generator.writeStartArray();
+                        for (Book book : books) {
+                            BookJsonCodec.INSTANCE.write(generator, book);
+                        }
+                        generator.writeEndArray();
+                    }
+                });
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamNdjson(@RequestParam(required = false) Integer limit,
+                                                              @RequestParam(required = false) String cursor) {
+        List<Book> books = streamedBooks(limit, cursor);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(outputStream -> {
+                    try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                        generator.setRootValueSeparator(null);
+                        for (Book book : books) {
+                            BookJsonCodec.INSTANCE.write(generator, book);
+                            generator.writeRaw('\n');
+                        }
+                    }
+                });
+    }
+
+    // Пакетное чтение: GET /books?ids=1,2,3 и POST /books/_mget для длинных списков
+    @GetMapping(params = "ids")
+    public List<BookLookup> findMany(@RequestParam int[] ids) {
+        return bookService.findMany(checkIds(ids));
+    }
+
+    @PostMapping("/_mget")
+    public List<BookLookup> findMany(@RequestBody BookIds request) {
+        return bookService.findMany(checkIds(request.ids()));
+    }
+
+    @GetMapping("/search")
+    public List<BookSearchHit> search(@RequestParam String q,
+                                      @RequestParam(required = false) Integer limit) {
+        return searchIndex.search(q, limit == null ? DEFAULT_SEARCH_SIZE : pageSize(limit));
     }
 
     @GetMapping("/{id}")
-    public Book findOne(@PathVariable int id) {
-        return bookService.findOne(id);
+    public ResponseEntity<byte[]> findOne(@PathVariable int id,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return cached(jsonCache.one(id, JacksonFormat.negotiate(accept)));
+    }
+
+    static ResponseEntity<byte[]> cached(BookJsonCache.Entry entry) {
+        return ResponseEntity.ok()
+                .eTag(entry.etag())
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(entry.contentType())
+                .body(entry.body());
+    }
+
+    private List<Book> streamedBooks(Integer limit, String cursor) {
+        // Без limit поток идёт до конца каталога, размер потока не ограничен MAX_PAGE_SIZE
+        int size = limit == null ? Integer.MAX_VALUE : checkLimit(limit);
+        return bookService.findPage(decodeCursor(cursor), size).books();
+    }
+
+    static int pageSize(Integer limit) {
+        return limit == null ? DEFAULT_PAGE_SIZE : Math.min(checkLimit(limit), MAX_PAGE_SIZE);
+    }
+
+    static int[] checkIds(int[] ids) {
+        if (ids == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids are required");
+        }
+        if (ids.length > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "at most " + MAX_PAGE_SIZE + " ids");
+        }
+        return ids;
+    }
+
+    static int checkLimit(int limit) {
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive");
+        }
+        return limit;
+    }
+
+    static String encodeCursor(int afterId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Integer.toString(afterId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static Integer decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "malformed cursor");
+        }
     }
 }
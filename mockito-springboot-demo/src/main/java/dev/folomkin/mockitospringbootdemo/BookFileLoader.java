@@ -0,0 +1,288 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Загрузка выгрузки каталога из CSV или JSON Lines.
+ * Файл отображается в память кусками, выровненными по концу строки,
+ * куски разбираются параллельно в ForkJoinPool сразу в снимки нужной раскладки
+ * и затем сливаются. Одна строка - одна книга; битые строки пропускаются и считаются.
+ * <p>
+ * CSV: {@code id,title,author,publisher,dateCreated,isbn,description}, кавычки по RFC 4180,
+ * необязательная строка заголовка. Переводы строк внутри полей не поддерживаются.
+ */
+public class BookFileLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(BookFileLoader.class);
+
+    static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final int MAX_LOGGED_ERRORS = 10;
+
+    enum Format {
+        CSV, JSONL;
+
+        static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".csv") ? CSV : JSONL;
+        }
+    }
+
+    public record Report(long records, long malformed, long bytes, Duration elapsed) {
+
+        public double recordsPerSecond() {
+            return records / seconds();
+        }
+
+        public double megabytesPerSecond() {
+            return bytes / 1024.0 / 1024.0 / seconds();
+        }
+
+        private double seconds() {
+            return Math.max(elapsed.toNanos(), 1) / 1e9;
+        }
+    }
+
+    record Result(BookCatalog catalog, Report report) {
+    }
+
+    private final BookCatalog.Storage storage;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final AtomicInteger loggedErrors = new AtomicInteger();
+
+    BookFileLoader(BookCatalog.Storage storage, ForkJoinPool pool, int chunkSize) {
+        this.storage = storage;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    Result load(Path file) {
+        long start = System.nanoTime();
+        Format format = Format.of(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<ChunkTask> tasks = new ArrayList<>();
+            for (long from = 0; from < size; ) {
+                long to = lineEnd(channel, Math.min(from + chunkSize, size), size);
+                tasks.add(new ChunkTask(channel, format, from, to));
+                from = to;
+            }
+            List<BookCatalog> parts = new ArrayList<>(tasks.size());
+            long records = 0;
+            long malformed = 0;
+            for (ChunkTask task : pool.submit(() -> ForkJoinTask.invokeAll(tasks)).join()) {
+                ChunkResult chunk = task.join();
+                parts.add(chunk.catalog());
+                records += chunk.records();
+                malformed += chunk.malformed();
+            }
+            BookCatalog catalog = BookCatalog.merge(BookCatalog.empty(storage), parts);
+            Report report = new Report(records, malformed, size, Duration.ofNanos(System.nanoTime() - start));
+            log.info("Loaded {} books from {} ({} malformed lines skipped, {} chunks): {} records/s, {} MB/s",
+                    catalog.size(), file, malformed, tasks.size(),
+                    String.format(Locale.ROOT, "%.0f", report.recordsPerSecond()),
+                    String.format(Locale.ROOT, "%.1f", report.megabytesPerSecond()));
+            return new Result(catalog, report);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load books from " + file, e);
+        }
+    }
+
+    // Сдвигает границу куска на начало следующей строки
+    private static long lineEnd(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private record ChunkResult(BookCatalog catalog, long records, long malformed) {
+    }
+
+    private final class ChunkTask extends RecursiveTask<ChunkResult> {
+        private final FileChannel channel;
+        private final Format format;
+        private final long from;
+        private final long to;
+        private byte[] line = new byte[1024];
+        private byte[] field = new byte[256];
+
+        ChunkTask(FileChannel channel, Format format, long from, long to) {
+            this.channel = channel;
+            this.format = format;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            MappedByteBuffer buffer;
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            List<Book> books = new ArrayList<>();
+            long malformed = 0;
+            int limit = buffer.limit();
+            int start = 0;
+            while (start < limit) {
+                int end = start;
+                while (end < limit && buffer.get(end) != '\n') {
+                    end++;
+                }
+                int length = end - start;
+                if (length > 0 && buffer.get(end - 1) == '\r') {
+                    length--;
+                }
+                if (length > 0) {
+                    if (line.length < length) {
+                        line = new byte[Math.max(length, line.length * 2)];
+                    }
+                    buffer.get(start, line, 0, length);
+                    try {
+                        Book book = format == Format.CSV ? parseCsv(length) : parseJson(length);
+                        if (book != null) {
+                            books.add(book);
+                        }
+                    } catch (RuntimeException | IOException e) {
+                        malformed++;
+                        if (loggedErrors.incrementAndGet() <= MAX_LOGGED_ERRORS) {
+                            log.warn("Skipping malformed line at byte {}: {}", from + start, e.getMessage());
+                        }
+                    }
+                }
+                start = end + 1;
+            }
+            return new ChunkResult(BookCatalog.empty(storage).withAll(books), books.size(), malformed);
+        }
+
+        private Book parseJson(int length) throws IOException {
+            try (JsonParser parser = jsonFactory.createParser(line, 0, length)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IllegalArgumentException("JSON object expected");
+                }
+                Integer id = null;
+                String[] values = new String[6];
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    JsonToken token = parser.nextToken();
+                    switch (name) {
+                        case "id" -> id = parser.getIntValue();
+                        case "title" -> values[0] = text(parser, token);
+                        case "author" -> values[1] = text(parser, token);
+                        case "publisher" -> values[2] = text(parser, token);
+                        case "dateCreated" -> values[3] = text(parser, token);
+                        case "isbn" -> values[4] = text(parser, token);
+                        case "description" -> values[5] = text(parser, token);
+                        default -> parser.skipChildren();
+                    }
+                }
+                if (id == null) {
+                    throw new IllegalArgumentException("id is missing");
+                }
+                return new Book(id, values[0], values[1], values[2], values[3], values[4], values[5]);
+            }
+        }
+
+        private static String text(JsonParser parser, JsonToken token) throws IOException {
+            if (token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if (!token.isScalarValue()) {
+                throw new IllegalArgumentException("scalar expected for " + parser.currentName());
+            }
+            return parser.getText();
+        }
+
+        private Book parseCsv(int length) {
+            String[] values = new String[7];
+            int count = 0;
+            int position = 0;
+            while (true) {
+                if (count == values.length) {
+                    throw new IllegalArgumentException("more than 7 fields");
+                }
+                if (position < length && line[position] == '"') {
+                    int size = 0;
+                    position++;
+                    while (true) {
+                        if (position >= length) {
+                            throw new IllegalArgumentException("unterminated quoted field");
+                        }
+                        byte b = line[position++];
+                        if (b == '"') {
+                            if (position < length && line[position] == '"') {
+                                position++;
+                            } else {
+                                break;
+                            }
+                        }
+                        if (size == field.length) {
+                            field = Arrays.copyOf(field, size * 2);
+                        }
+                        field[size++] = b;
+                    }
+                    values[count++] = new String(field, 0, size, StandardCharsets.UTF_8);
+                } else {
+                    int start = position;
+                    while (position < length && line[position] != ',') {
+                        position++;
+                    }
+                    values[count++] = new String(line, start, position - start, StandardCharsets.UTF_8);
+                }
+                if (position == length) {
+                    break;
+                }
+                if (line[position] != ',') {
+                    throw new IllegalArgumentException("separator expected after quoted field");
+                }
+                position++;
+            }
+            if (count != values.length) {
+                throw new IllegalArgumentException("7 fields expected, got " + count);
+            }
+            int id;
+            try {
+                id = Integer.parseInt(values[0].trim());
+            } catch (NumberFormatException e) {
+                if (from == 0 && "id".equalsIgnoreCase(values[0].trim())) {
+                    return null;
+                }
+                throw e;
+            }
+            return new Book(id, values[1], values[2], values[3], values[4], values[5], values[6]);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package dev.folomkin.mockitospringbootdemo;
+
+/**
+ * Тело {@code POST /books/_mget}: {@code {"ids": [1, 2, 3]}}.
+ */
+public record BookIds(int[] ids) {
+}
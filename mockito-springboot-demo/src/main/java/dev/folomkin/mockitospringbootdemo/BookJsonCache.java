@@ -0,0 +1,128 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.folomkin.jacksonformats.JacksonFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Готовые байты ответа для книг и для всего списка со строгими ETag, отдельно на каждый
+ * {@link JacksonFormat}: бинарные форматы кодируются только после первого запроса в них.
+ * Записи сбрасываются по событиям каталога, список привязан к снимку, из которого собран.
+ */
+@Component
+public class BookJsonCache implements BookCatalogListener {
+
+    public record Entry(byte[] body, String etag, MediaType contentType) {
+    }
+
+    private record ListEntry(BookCatalog catalog, Entry entry) {
+    }
+
+    // Записи одного формата
+    private static final class Encoded {
+        private final JacksonFormat format;
+        private final ObjectMapper objectMapper;
+        private final ConcurrentHashMap<Integer, Entry> books = new ConcurrentHashMap<>();
+        private volatile ListEntry list;
+
+        Encoded(JacksonFormat format, ObjectMapper objectMapper) {
+            this.format = format;
+            this.objectMapper = objectMapper;
+        }
+
+        private Entry encode(Object value) {
+            try {
+                byte[] body = objectMapper.writeValueAsBytes(value);
+                return new Entry(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"", format.mediaType());
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private final BookService bookService;
+    private final Map<JacksonFormat, Encoded> formats = new EnumMap<>(JacksonFormat.class);
+
+    public BookJsonCache(BookService bookService, ObjectMapper objectMapper,
+                         Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.bookService = bookService;
+        for (JacksonFormat format : JacksonFormat.values()) {
+            formats.put(format, new Encoded(format,
+                    format == JacksonFormat.JSON ? objectMapper : format.objectMapper(objectMapperBuilder)));
+        }
+        bookService.addListener(this);
+    }
+
+    public Entry all(JacksonFormat format) {
+        Encoded encoded = formats.get(format);
+        BookCatalog catalog = bookService.snapshot();
+        ListEntry cached = encoded.list;
+        if (cached == null || cached.catalog() != catalog) {
+            cached = new ListEntry(catalog, encoded.encode(catalog.asList()));
+            encoded.list = cached;
+        }
+        return cached.entry();
+    }
+
+    /**
+     * Готовый список без кодирования: null, если его ещё нет или каталог с тех пор изменился.
+     */
+    public Entry cachedAll(JacksonFormat format) {
+        ListEntry cached = formats.get(format).list;
+        return cached == null || cached.catalog() != bookService.snapshot() ? null : cached.entry();
+    }
+
+    /**
+     * Готовая книга без кодирования: null, если её ещё не кодировали в этом формате.
+     */
+    public Entry cachedOne(int id, JacksonFormat format) {
+        return formats.get(format).books.get(id);
+    }
+
+    public Entry one(int id, JacksonFormat format) {
+        Encoded encoded = formats.get(format);
+        Entry cached = encoded.books.get(id);
+        if (cached == null) {
+            BookCatalog catalog = bookService.snapshot();
+            Book book = catalog.get(id);
+            if (book == null) {
+                throw new NoSuchElementException("No book with id " + id);
+            }
+            cached = encoded.encode(book);
+            encoded.books.put(id, cached);
+            // каталог могли изменить, пока мы кодировали: такую запись не оставляем
+            if (bookService.snapshot() != catalog) {
+                encoded.books.remove(id, cached);
+            }
+        }
+        return cached;
+    }
+
+    @Override
+    public void catalogReplaced(BookCatalog catalog) {
+        for (Encoded encoded : formats.values()) {
+            encoded.books.clear();
+            encoded.list = null;
+        }
+    }
+
+    @Override
+    public void booksChanged(BookCatalog previous, BookCatalog current, int[] ids) {
+        for (Encoded encoded : formats.values()) {
+            for (int id : ids) {
+                encoded.books.remove(id);
+            }
+            encoded.list = null;
+        }
+    }
+}
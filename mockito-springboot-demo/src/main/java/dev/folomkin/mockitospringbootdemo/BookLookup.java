@@ -0,0 +1,11 @@
+package dev.folomkin.mockitospringbootdemo;
+
+/**
+ * Результат поиска одной книги из пакета: book == null, если такой книги нет.
+ */
+public record BookLookup(int id, boolean found, Book book) {
+
+    static BookLookup of(int id, Book book) {
+        return new BookLookup(id, book != null, book);
+    }
+}
@@ -0,0 +1,10 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import java.util.List;
+
+public record BookPage(List<Book> books, Integer nextAfterId) {
+
+    public boolean hasNext() {
+        return nextAfterId != null;
+    }
+}
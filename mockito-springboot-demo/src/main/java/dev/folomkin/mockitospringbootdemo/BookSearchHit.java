@@ -0,0 +1,4 @@
+package dev.folomkin.mockitospringbootdemo;
+
+public record BookSearchHit(float score, Book book) {
+}
@@ -0,0 +1,431 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Инвертированный индекс по title, author, publisher и description.
+ * Списки вхождений неизменяемы и заменяются целиком, поэтому поиск идёт без блокировок;
+ * изменения одного снимка каталога собираются по термам, и каждый затронутый список
+ * пересобирается один раз.
+ * Запрос трактуется как AND: пересечение начинается с самого редкого терма,
+ * результаты ранжируются по BM25 (без нормировки по длине документа).
+ */
+@Component
+public class BookSearchIndex implements BookCatalogListener {
+
+    static final int TITLE_WEIGHT = 3;
+    static final int AUTHOR_WEIGHT = 2;
+    static final int TEXT_WEIGHT = 1;
+
+    // Для частых термов заранее держим лучшие вхождения: запрос из одного слова не сканирует список
+    private static final int HEAD_SIZE = 128;
+    private static final float K1 = 1.2f;
+
+    private final BookService bookService;
+    private volatile ConcurrentHashMap<String, Postings> postings = new ConcurrentHashMap<>();
+
+    public BookSearchIndex(BookService bookService) {
+        this.bookService = bookService;
+        bookService.addListener(this);
+    }
+
+    public List<BookSearchHit> search(String query, int limit) {
+        Map<String, Postings> index = postings;
+        BookCatalog catalog = bookService.snapshot();
+        Set<String> terms = new HashSet<>();
+        tokenize(query, 1, (term, weight) -> terms.add(term));
+        if (terms.isEmpty() || limit < 1) {
+            return List.of();
+        }
+
+        Postings[] lists = new Postings[terms.size()];
+        int n = 0;
+        for (String term : terms) {
+            Postings list = index.get(term);
+            if (list == null) {
+                return List.of();
+            }
+            lists[n++] = list;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.ids.length, b.ids.length));
+
+        int documents = catalog.size();
+        if (lists.length == 1 && limit <= lists[0].head.length) {
+            Postings list = lists[0];
+            float idf = idf(documents, list.ids.length);
+            List<BookSearchHit> hits = new ArrayList<>(Math.min(limit, list.head.length));
+            for (int i = 0; i < list.head.length && hits.size() < limit; i++) {
+                int position = list.head[i];
+                addHit(hits, catalog, list.ids[position], idf * saturate(list.weights[position]));
+            }
+            return hits;
+        }
+
+        float[] idf = new float[lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            idf[i] = idf(documents, lists[i].ids.length);
+        }
+        TopK top = new TopK(limit);
+        int[] cursors = new int[lists.length];
+        Postings rarest = lists[0];
+        candidates:
+        for (int c = 0; c < rarest.ids.length; c++) {
+            int id = rarest.ids[c];
+            float score = idf[0] * saturate(rarest.weights[c]);
+            for (int i = 1; i < lists.length; i++) {
+                int position = lists[i].seek(id, cursors[i]);
+                if (position >= lists[i].ids.length) {
+                    break candidates;
+                }
+                cursors[i] = position;
+                if (lists[i].ids[position] != id) {
+                    continue candidates;
+                }
+                score += idf[i] * saturate(lists[i].weights[position]);
+            }
+            top.offer(id, score);
+        }
+
+        List<BookSearchHit> hits = new ArrayList<>(top.size);
+        top.drain((id, score) -> addHit(hits, catalog, id, score));
+        return hits;
+    }
+
+    @Override
+    public void catalogReplaced(BookCatalog catalog) {
+        Map<String, PostingsBuilder> builders = new HashMap<>();
+        for (Book book : catalog.asList()) {
+            int id = book.getId();
+            terms(book).forEach((term, weight) ->
+                    builders.computeIfAbsent(term, t -> new PostingsBuilder()).add(id, weight));
+        }
+        ConcurrentHashMap<String, Postings> rebuilt = new ConcurrentHashMap<>(builders.size() * 2);
+        builders.forEach((term, builder) -> rebuilt.put(term, builder.build()));
+        postings = rebuilt;
+    }
+
+    @Override
+    public void booksChanged(BookCatalog previous, BookCatalog current, int[] ids) {
+        // Крупные пакеты дешевле переиндексировать целиком, чем копировать списки по одному
+        if (ids.length > Math.max(64, current.size() / 8)) {
+            catalogReplaced(current);
+            return;
+        }
+        Map<String, PostingsUpdate> updates = new HashMap<>();
+        for (int id : ids) {
+            Book before = previous.get(id);
+            Book after = current.get(id);
+            Map<String, Integer> added = after == null ? Map.of() : terms(after);
+            if (before != null) {
+                for (String term : terms(before).keySet()) {
+                    if (!added.containsKey(term)) {
+                        updates.computeIfAbsent(term, t -> new PostingsUpdate()).add(id, PostingsUpdate.REMOVED);
+                    }
+                }
+            }
+            added.forEach((term, weight) -> updates.computeIfAbsent(term, t -> new PostingsUpdate()).add(id, weight));
+        }
+        ConcurrentHashMap<String, Postings> index = postings;
+        updates.forEach((term, update) -> index.compute(term, (t, list) -> update.applyTo(list)));
+    }
+
+    @Override
+    public String snapshotSection() {
+        return "search";
+    }
+
+    @Override
+    public void writeSnapshot(BookSnapshot.Writer writer) throws IOException {
+        Map<String, Postings> index = postings;
+        writer.writeInt(index.size());
+        for (Map.Entry<String, Postings> entry : index.entrySet()) {
+            Postings list = entry.getValue();
+            writer.writeString(entry.getKey());
+            writer.writeInts(list.ids, list.ids.length);
+            writer.writeShorts(list.weights, list.weights.length);
+            writer.writeInts(list.head, list.head.length);
+        }
+    }
+
+    @Override
+    public boolean restoreSnapshot(BookCatalog catalog, BookSnapshot.Reader reader) {
+        int size = reader.readInt();
+        ConcurrentHashMap<String, Postings> restored = new ConcurrentHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            String term = reader.readString();
+            int[] ids = reader.readInts();
+            short[] weights = reader.readShorts();
+            int[] head = reader.readInts();
+            if (weights.length != ids.length) {
+                return false;
+            }
+            restored.put(term, new Postings(ids, weights, head));
+        }
+        postings = restored;
+        return true;
+    }
+
+    static Map<String, Integer> terms(Book book) {
+        Map<String, Integer> terms = new HashMap<>();
+        ObjIntConsumer<String> collector = (term, weight) -> terms.merge(term, weight, Integer::sum);
+        tokenize(book.getTitle(), TITLE_WEIGHT, collector);
+        tokenize(book.getAuthor(), AUTHOR_WEIGHT, collector);
+        tokenize(book.getPublisher(), TEXT_WEIGHT, collector);
+        tokenize(book.getDescription(), TEXT_WEIGHT, collector);
+        return terms;
+    }
+
+    static void tokenize(String text, int weight, ObjIntConsumer<String> consumer) {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean wordChar = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                consumer.accept(text.substring(start, i).toLowerCase(Locale.ROOT), weight);
+                start = -1;
+            }
+        }
+    }
+
+    private static void addHit(List<BookSearchHit> hits, BookCatalog catalog, int id, float score) {
+        Book book = catalog.get(id);
+        if (book != null) {
+            hits.add(new BookSearchHit(score, book));
+        }
+    }
+
+    private static float idf(int documents, int frequency) {
+        return (float) Math.log(1 + (documents - frequency + 0.5) / (frequency + 0.5));
+    }
+
+    private static float saturate(short weight) {
+        return weight * (K1 + 1) / (weight + K1);
+    }
+
+    static final class Postings {
+        final int[] ids;
+        final short[] weights;
+        // позиции лучших вхождений по убыванию веса
+        final int[] head;
+
+        Postings(int[] ids, short[] weights) {
+            this(ids, weights, head(weights));
+        }
+
+        Postings(int[] ids, short[] weights, int[] head) {
+            this.ids = ids;
+            this.weights = weights;
+            this.head = head;
+        }
+
+        int seek(int id, int from) {
+            // галопирующий поиск вперёд от текущей позиции
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < ids.length && ids[high] < id) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int position = Arrays.binarySearch(ids, low, Math.min(high + 1, ids.length), id);
+            return position >= 0 ? position : -position - 1;
+        }
+
+        private static int[] head(short[] weights) {
+            TopK top = new TopK(Math.min(HEAD_SIZE, weights.length));
+            for (int i = 0; i < weights.length; i++) {
+                top.offer(i, weights[i]);
+            }
+            int[] head = new int[top.size];
+            int[] n = {0};
+            top.drain((position, weight) -> head[n[0]++] = position);
+            return head;
+        }
+    }
+
+    private static final class PostingsBuilder {
+        private int[] ids = new int[4];
+        private short[] weights = new short[4];
+        private int size;
+
+        PostingsBuilder add(int id, int weight) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            ids[size] = id;
+            weights[size++] = clamp(weight);
+            return this;
+        }
+
+        Postings build() {
+            return new Postings(Arrays.copyOf(ids, size), Arrays.copyOf(weights, size));
+        }
+    }
+
+    /**
+     * Изменения одного терма за снимок: новый вес id или {@link #REMOVED}.
+     * Список вхождений сливается с ними одним проходом, а не копируется на каждый id.
+     */
+    private static final class PostingsUpdate {
+        static final int REMOVED = -1;
+
+        // id в старших 32 битах, вес в младших: сортировка упорядочивает по id
+        private long[] changes = new long[4];
+        private int size;
+
+        void add(int id, int weight) {
+            if (size == changes.length) {
+                changes = Arrays.copyOf(changes, size * 2);
+            }
+            changes[size++] = ((long) id << 32) | (weight & 0xFFFF_FFFFL);
+        }
+
+        Postings applyTo(Postings list) {
+            Arrays.sort(changes, 0, size);
+            int[] oldIds = list == null ? new int[0] : list.ids;
+            short[] oldWeights = list == null ? new short[0] : list.weights;
+            int[] ids = new int[oldIds.length + size];
+            short[] weights = new short[ids.length];
+            int n = 0;
+            int o = 0;
+            for (int c = 0; c < size; c++) {
+                int id = (int) (changes[c] >> 32);
+                int weight = (int) changes[c];
+                if (c + 1 < size && (int) (changes[c + 1] >> 32) == id) {
+                    continue;
+                }
+                while (o < oldIds.length && oldIds[o] < id) {
+                    ids[n] = oldIds[o];
+                    weights[n++] = oldWeights[o++];
+                }
+                if (o < oldIds.length && oldIds[o] == id) {
+                    o++;
+                }
+                if (weight != REMOVED) {
+                    ids[n] = id;
+                    weights[n++] = clamp(weight);
+                }
+            }
+            int tail = oldIds.length - o;
+            System.arraycopy(oldIds, o, ids, n, tail);
+            System.arraycopy(oldWeights, o, weights, n, tail);
+            n += tail;
+            return n == 0 ? null : new Postings(Arrays.copyOf(ids, n), Arrays.copyOf(weights, n));
+        }
+    }
+
+    private static short clamp(int weight) {
+        return (short) Math.min(weight, Short.MAX_VALUE);
+    }
+
+    interface IntFloatConsumer {
+        void accept(int value, float score);
+    }
+
+    /**
+     * Min-куча на примитивных массивах для отбора k лучших.
+     * При равном счёте выше стоит меньший id.
+     */
+    static final class TopK {
+        private final int[] values;
+        private final float[] scores;
+        private int size;
+
+        TopK(int capacity) {
+            values = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        void offer(int value, float score) {
+            if (size < values.length) {
+                values[size] = value;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (size > 0 && better(value, score, 0)) {
+                values[0] = value;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        // Выдаёт элементы от лучшего к худшему и опустошает кучу
+        void drain(IntFloatConsumer consumer) {
+            int count = size;
+            int[] v = new int[count];
+            float[] s = new float[count];
+            for (int i = count - 1; i >= 0; i--) {
+                v[i] = values[0];
+                s[i] = scores[0];
+                size--;
+                values[0] = values[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+            for (int i = 0; i < count; i++) {
+                consumer.accept(v[i], s[i]);
+            }
+        }
+
+        private boolean better(int value, float score, int slot) {
+            return score > scores[slot] || (score == scores[slot] && value < values[slot]);
+        }
+
+        private void siftUp(int slot) {
+            while (slot > 0) {
+                int parent = (slot - 1) >>> 1;
+                if (!better(values[parent], scores[parent], slot)) {
+                    break;
+                }
+                swap(slot, parent);
+                slot = parent;
+            }
+        }
+
+        private void siftDown(int slot) {
+            while (true) {
+                int left = slot * 2 + 1;
+                if (left >= size) {
+                    return;
+                }
+                int worst = left;
+                int right = left + 1;
+                if (right < size && better(values[left], scores[left], right)) {
+                    worst = right;
+                }
+                if (!better(values[slot], scores[slot], worst)) {
+                    return;
+                }
+                swap(slot, worst);
+                slot = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int value = values[a];
+            values[a] = values[b];
+            values[b] = value;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+}
@@ -1,27 +1,205 @@
 package dev.folomkin.mockitospringbootdemo;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
 
 @Service
 public class BookService {
 
-    private List<Book> books = new ArrayList<>();
+    private static final Logger log = LoggerFactory.getLogger(BookService.class);
+
+    static final String CATALOG_SECTION = "catalog";
+
+    // Читатели берут текущий снимок без блокировок, писатели публикуют новый
+    private final BookCatalogProperties properties;
+    private volatile BookCatalog catalog;
+    private final List<BookCatalogListener> listeners = new CopyOnWriteArrayList<>();
+    // Секции снимка, из которого поднят текущий каталог; сбрасываются при первом изменении
+    private Map<String, BookSnapshot.Reader> restored = Map.of();
+
+    public BookService() {
+        this(BookCatalogProperties.defaults());
+    }
+
+    @Autowired
+    public BookService(BookCatalogProperties properties) {
+        this.properties = properties;
+        this.catalog = BookCatalog.empty(properties.storage());
+    }
+
+    public BookCatalog snapshot() {
+        return catalog;
+    }
+
+    public synchronized void addListener(BookCatalogListener listener) {
+        listeners.add(listener);
+        String name = listener.snapshotSection();
+        BookSnapshot.Reader section = name == null ? null : restored.get(name);
+        if (section == null || !restore(listener, section)) {
+            listener.catalogReplaced(catalog);
+        }
+    }
+
+    private boolean restore(BookCatalogListener listener, BookSnapshot.Reader section) {
+        try {
+            return listener.restoreSnapshot(catalog, section);
+        } catch (RuntimeException e) {
+            log.warn("Ignoring snapshot section {}: {}", listener.snapshotSection(), e.toString());
+            return false;
+        }
+    }
 
     public List<Book> findAll() {
-        return books;
+        return catalog.asList();
+    }
+
+    public BookPage findPage(Integer afterId, int limit) {
+        BookCatalog snapshot = catalog;
+        List<Book> books = snapshot.page(afterId, limit);
+        if (books.isEmpty()) {
+            return new BookPage(books, null);
+        }
+        int lastId = books.get(books.size() - 1).getId();
+        return new BookPage(books, snapshot.hasAfter(lastId) ? lastId : null);
     }
 
     public Book findOne(int id) {
-        return books.stream().filter(book -> book.getId() == id).findFirst().orElseThrow();
+        Book book = catalog.get(id);
+        if (book == null) {
+            throw new NoSuchElementException("No book with id " + id);
+        }
+        return book;
+    }
+
+    /**
+     * Книги по списку id из одного снимка, в порядке запроса; отсутствующие
+     * отмечаются в результате, а не обрывают весь запрос.
+     */
+    public List<BookLookup> findMany(int[] ids) {
+        BookCatalog snapshot = catalog;
+        BookLookup[] result = new BookLookup[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            result[i] = BookLookup.of(ids[i], snapshot.get(ids[i]));
+        }
+        return Arrays.asList(result);
+    }
+
+    public synchronized void save(Book book) {
+        publish(catalog.with(book), new int[]{book.getId()});
+    }
+
+    public synchronized void saveAll(Collection<Book> books) {
+        publish(catalog.withAll(books), books.stream().mapToInt(Book::getId).toArray());
+    }
+
+    public synchronized void delete(int id) {
+        publish(catalog.without(id), new int[]{id});
+    }
+
+    public BookFileLoader.Report load(Path file) {
+        BookFileLoader.Result result = new BookFileLoader(properties.storage(), ForkJoinPool.commonPool(),
+                BookFileLoader.DEFAULT_CHUNK_SIZE).load(file);
+        replace(result.catalog());
+        return result.report();
+    }
+
+    public synchronized void replace(BookCatalog next) {
+        catalog = next;
+        restored = Map.of();
+        for (BookCatalogListener listener : listeners) {
+            listener.catalogReplaced(next);
+        }
+    }
+
+    private void publish(BookCatalog next, int[] ids) {
+        BookCatalog previous = catalog;
+        catalog = next;
+        restored = Map.of();
+        for (BookCatalogListener listener : listeners) {
+            listener.booksChanged(previous, next, ids);
+        }
+    }
+
+    /**
+     * Сохраняет каталог в компактной раскладке вместе с состоянием подписчиков,
+     * например поисковым индексом, чтобы следующий старт не разбирал выгрузку заново.
+     */
+    public synchronized void writeSnapshot(Path file) throws IOException {
+        long start = System.nanoTime();
+        CompactBookCatalog compact = CompactBookCatalog.compact(catalog);
+        Map<String, BookSnapshot.SectionWriter> sections = new LinkedHashMap<>();
+        sections.put(CATALOG_SECTION, compact::write);
+        for (BookCatalogListener listener : listeners) {
+            if (listener.snapshotSection() != null) {
+                sections.put(listener.snapshotSection(), listener::writeSnapshot);
+            }
+        }
+        BookSnapshot.write(file, sections);
+        log.info("Wrote snapshot of {} books to {} in {} ms", compact.size(), file,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    synchronized boolean restoreSnapshot(Path file) {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            Map<String, BookSnapshot.Reader> sections = BookSnapshot.read(file);
+            BookSnapshot.Reader section = sections.get(CATALOG_SECTION);
+            if (section == null) {
+                throw new BookSnapshot.CorruptSnapshotException("No catalog section");
+            }
+            BookCatalog compact = CompactBookCatalog.read(section);
+            replace(properties.storage() == BookCatalog.Storage.COMPACT ? compact
+                    : BookCatalog.merge(BookCatalog.empty(properties.storage()), List.of(compact)));
+            restored = sections;
+            log.info("Restored {} books from snapshot {} in {} ms", compact.size(), file,
+                    (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring snapshot {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    @PreDestroy
+    private void saveSnapshot() {
+        if (properties.snapshot() == null) {
+            return;
+        }
+        try {
+            writeSnapshot(properties.snapshot());
+        } catch (IOException e) {
+            log.warn("Failed to write snapshot {}", properties.snapshot(), e);
+        }
     }
 
     @PostConstruct
     private void loadBooks() {
+        if (properties.snapshot() != null && restoreSnapshot(properties.snapshot())) {
+            return;
+        }
+        if (properties.catalog() != null) {
+            load(properties.catalog());
+            return;
+        }
         Book one = new Book(1,
                 "97 Things Every Java Programmer Should Know",
                 "Kevlin Henney, Trisha Gee",
@@ -44,6 +222,6 @@ public class BookService {
                 "B086722L4L",
                 "Spring");
 
-        books.addAll(Arrays.asList(one,two,three));
+        saveAll(Arrays.asList(one, two, three));
     }
 }
@@ -0,0 +1,282 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Версионированный бинарный снимок каталога.
+ * <pre>
+ * заголовок: magic "BOOKSNAP" | int версия | long длина тела | long CRC32C тела
+ * тело:      секции [строка имя | long длина | данные]...
+ * </pre>
+ * Массивы пишутся целиком и при чтении забираются из отображённого в память файла
+ * пакетными get, без разбора по записям.
+ */
+final class BookSnapshot {
+
+    static final long MAGIC = 0x424F4F4B534E4150L;
+    static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8 + 4 + 8 + 8;
+
+    static final class CorruptSnapshotException extends IOException {
+        CorruptSnapshotException(String message) {
+            super(message);
+        }
+    }
+
+    private BookSnapshot() {
+    }
+
+    static Map<String, Reader> read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new CorruptSnapshotException("Unexpected snapshot size " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getLong() != MAGIC) {
+                throw new CorruptSnapshotException("Not a book snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new CorruptSnapshotException("Unsupported snapshot version " + version);
+            }
+            long length = buffer.getLong();
+            long checksum = buffer.getLong();
+            if (length != size - HEADER_SIZE) {
+                throw new CorruptSnapshotException("Truncated snapshot: " + (size - HEADER_SIZE) + " of " + length);
+            }
+            ByteBuffer body = buffer.slice(HEADER_SIZE, (int) length);
+            if (checksum(body) != checksum) {
+                throw new CorruptSnapshotException("Snapshot checksum mismatch");
+            }
+            Map<String, Reader> sections = new HashMap<>();
+            Reader reader = new Reader(body);
+            while (body.hasRemaining()) {
+                String name = reader.readString();
+                int sectionLength = Math.toIntExact(reader.readLong());
+                sections.put(name, new Reader(body.slice(body.position(), sectionLength)));
+                body.position(body.position() + sectionLength);
+            }
+            return sections;
+        } catch (RuntimeException e) {
+            throw new CorruptSnapshotException("Malformed snapshot: " + e);
+        }
+    }
+
+    /**
+     * Пишет во временный файл и атомарно заменяет им прежний снимок.
+     */
+    static void write(Path file, Map<String, SectionWriter> sections) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                Writer writer = new Writer(channel);
+                writer.writeLong(MAGIC);
+                writer.writeInt(VERSION);
+                writer.writeLong(0);
+                writer.writeLong(0);
+                for (Map.Entry<String, SectionWriter> section : sections.entrySet()) {
+                    writer.writeString(section.getKey());
+                    long lengthPosition = writer.position();
+                    writer.writeLong(0);
+                    section.getValue().write(writer);
+                    writer.patchLong(lengthPosition, writer.position() - lengthPosition - 8);
+                }
+                writer.flush();
+                long length = channel.size() - HEADER_SIZE;
+                long checksum = checksum(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, length));
+                writer.patchLong(8 + 4, length);
+                writer.patchLong(8 + 4 + 8, checksum);
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static long checksum(ByteBuffer body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        return crc.getValue();
+    }
+
+    @FunctionalInterface
+    interface SectionWriter {
+        void write(Writer writer) throws IOException;
+    }
+
+    static final class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        private long flushed;
+
+        private Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long position() {
+            return flushed + buffer.position();
+        }
+
+        void writeInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void writeLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void writeInts(int[] values, int length) throws IOException {
+            writeInt(length);
+            for (int from = 0; from < length; ) {
+                ensure(4);
+                int count = Math.min(length - from, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, from, count);
+                buffer.position(buffer.position() + count * 4);
+                from += count;
+            }
+        }
+
+        void writeShorts(short[] values, int length) throws IOException {
+            writeInt(length);
+            for (int from = 0; from < length; ) {
+                ensure(2);
+                int count = Math.min(length - from, buffer.remaining() / 2);
+                buffer.asShortBuffer().put(values, from, count);
+                buffer.position(buffer.position() + count * 2);
+                from += count;
+            }
+        }
+
+        void writeBytes(byte[] values, int length) throws IOException {
+            writeInt(length);
+            for (int from = 0; from < length; ) {
+                ensure(1);
+                int count = Math.min(length - from, buffer.remaining());
+                buffer.put(values, from, count);
+                from += count;
+            }
+        }
+
+        void writeString(String value) throws IOException {
+            if (value == null) {
+                writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeBytes(bytes, bytes.length);
+        }
+
+        void writeStrings(String[] values, int length) throws IOException {
+            writeInt(length);
+            for (int i = 0; i < length; i++) {
+                writeString(values[i]);
+            }
+        }
+
+        void writeBitSet(BitSet bits) throws IOException {
+            long[] words = bits == null ? new long[0] : bits.toLongArray();
+            writeInt(words.length);
+            for (long word : words) {
+                writeLong(word);
+            }
+        }
+
+        private void patchLong(long position, long value) throws IOException {
+            flush();
+            channel.write(ByteBuffer.allocate(8).putLong(0, value), position);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                flushed += channel.write(buffer, flushed);
+            }
+            buffer.clear();
+        }
+    }
+
+    static final class Reader {
+        private final ByteBuffer buffer;
+
+        private Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        int readInt() {
+            return buffer.getInt();
+        }
+
+        long readLong() {
+            return buffer.getLong();
+        }
+
+        int[] readInts() {
+            int[] values = new int[buffer.getInt()];
+            buffer.asIntBuffer().get(values);
+            buffer.position(buffer.position() + values.length * 4);
+            return values;
+        }
+
+        short[] readShorts() {
+            short[] values = new short[buffer.getInt()];
+            buffer.asShortBuffer().get(values);
+            buffer.position(buffer.position() + values.length * 2);
+            return values;
+        }
+
+        byte[] readBytes() {
+            byte[] values = new byte[buffer.getInt()];
+            buffer.get(values);
+            return values;
+        }
+
+        String readString() {
+            int length = buffer.getInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        String[] readStrings() {
+            String[] values = new String[buffer.getInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readString();
+            }
+            return values;
+        }
+
+        BitSet readBitSet() {
+            long[] words = new long[buffer.getInt()];
+            buffer.asLongBuffer().get(words);
+            buffer.position(buffer.position() + words.length * 8);
+            return words.length == 0 ? null : BitSet.valueOf(words);
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Month;
+import java.time.format.TextStyle;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Компактный каталог в раскладке struct-of-arrays.
+ * title, isbn и description лежат UTF-8 байтами в общем массиве со смещениями,
+ * author и publisher кодируются словарём,
+ * dateCreated вида "May 2020" упаковывается в int (year << 4 | month).
+ * Словари общие у последовательных снимков и только растут; когда мёртвых значений
+ * в них становится больше живых, новый снимок получает свои, уже без мёртвых.
+ * Наружу отдаются отвязанные от хранилища объекты Book.
+ */
+final class CompactBookCatalog extends BookCatalog {
+
+    static final int NULL_CODE = -1;
+    // меньше стольких мёртвых значений словари не пересобираются
+    static final int COMPACTION_THRESHOLD = 1024;
+
+    final Utf8Column titles;
+    final Utf8Column isbns;
+    final Utf8Column descriptions;
+    final int[] authors;
+    final int[] publishers;
+    // 0 - null, > 0 - упакованные год и месяц, < 0 - -(код + 1) в словаре нестандартных дат
+    final int[] dates;
+    final Dictionaries dictionaries;
+    private final String[] authorValues;
+    private final String[] publisherValues;
+    private final String[] dateValues;
+
+    CompactBookCatalog(int[] ids, Utf8Column titles, Utf8Column isbns, Utf8Column descriptions, int[] authors,
+                       int[] publishers, int[] dates, Dictionaries dictionaries) {
+        this(ids, null, titles, isbns, descriptions, authors, publishers, dates, dictionaries);
+    }
+
+    private CompactBookCatalog(int[] ids, int[] table, Utf8Column titles, Utf8Column isbns, Utf8Column descriptions,
+                               int[] authors, int[] publishers, int[] dates, Dictionaries dictionaries) {
+        super(ids, table == null ? BookCatalog.table(ids) : table);
+        this.titles = titles;
+        this.isbns = isbns;
+        this.descriptions = descriptions;
+        this.authors = authors;
+        this.publishers = publishers;
+        this.dates = dates;
+        this.dictionaries = dictionaries;
+        // словари только растут: снимку достаточно массива на момент сборки
+        this.authorValues = dictionaries.authors.values;
+        this.publisherValues = dictionaries.publishers.values;
+        this.dateValues = dictionaries.dates.values;
+    }
+
+    static CompactBookCatalog create() {
+        Utf8Column none = new Utf8Column(new byte[0], new int[1], null);
+        return new CompactBookCatalog(new int[0], none, none, none, new int[0], new int[0], new int[0],
+                new Dictionaries());
+    }
+
+    /**
+     * Собирает снимок на общих словарях, а если мёртвых значений в них больше живых
+     * (и больше {@link #COMPACTION_THRESHOLD}) - на новых словарях из одних живых.
+     */
+    private static CompactBookCatalog build(int[] ids, Utf8Column titles, Utf8Column isbns, Utf8Column descriptions,
+                                            int[] authors, int[] publishers, int[] dates, Dictionaries dictionaries) {
+        int live = live(authors, dictionaries.authors.size(), false)
+                + live(publishers, dictionaries.publishers.size(), false)
+                + live(dates, dictionaries.dates.size(), true);
+        int dead = dictionaries.authors.size() + dictionaries.publishers.size() + dictionaries.dates.size() - live;
+        if (dead <= Math.max(live, COMPACTION_THRESHOLD)) {
+            return new CompactBookCatalog(ids, titles, isbns, descriptions, authors, publishers, dates, dictionaries);
+        }
+        Remapped a = remap(authors, dictionaries.authors.values, dictionaries.authors.size(), false);
+        Remapped p = remap(publishers, dictionaries.publishers.values, dictionaries.publishers.size(), false);
+        Remapped d = remap(dates, dictionaries.dates.values, dictionaries.dates.size(), true);
+        return new CompactBookCatalog(ids, titles, isbns, descriptions, a.column(), p.column(), d.column(),
+                new Dictionaries(Dictionary.of(a.values()), Dictionary.of(p.values()), Dictionary.of(d.values())));
+    }
+
+    // Код в словаре для значения колонки; у дат словарные только отрицательные значения
+    private static int code(int value, boolean date) {
+        return date ? (value < 0 ? -value - 1 : NULL_CODE) : value;
+    }
+
+    private static int live(int[] column, int size, boolean date) {
+        BitSet used = new BitSet(size);
+        for (int value : column) {
+            int code = code(value, date);
+            if (code != NULL_CODE) {
+                used.set(code);
+            }
+        }
+        return used.cardinality();
+    }
+
+    private record Remapped(int[] column, String[] values) {
+    }
+
+    // Колонка, перекодированная в словарь только из использованных ею значений
+    private static Remapped remap(int[] column, String[] values, int size, boolean date) {
+        int[] mapping = new int[size];
+        Arrays.fill(mapping, NULL_CODE);
+        String[] used = new String[Math.min(size, column.length)];
+        int count = 0;
+        int[] result = new int[column.length];
+        for (int i = 0; i < column.length; i++) {
+            int code = code(column[i], date);
+            if (code == NULL_CODE) {
+                result[i] = column[i];
+                continue;
+            }
+            if (mapping[code] == NULL_CODE) {
+                mapping[code] = count;
+                used[count++] = values[code];
+            }
+            result[i] = date ? -(mapping[code] + 1) : mapping[code];
+        }
+        return new Remapped(result, Arrays.copyOf(used, count));
+    }
+
+    static CompactBookCatalog compact(BookCatalog catalog) {
+        if (catalog instanceof CompactBookCatalog compact) {
+            return compact;
+        }
+        return (CompactBookCatalog) BookCatalog.merge(create(), List.of(catalog));
+    }
+
+    void write(BookSnapshot.Writer writer) throws IOException {
+        writer.writeInts(ids, ids.length);
+        writer.writeInts(table(), table().length);
+        titles.write(writer);
+        isbns.write(writer);
+        descriptions.write(writer);
+        // в общих словарях есть значения чужих и удалённых книг: пишем только свои
+        Remapped a = remap(authors, authorValues, authorValues.length, false);
+        Remapped p = remap(publishers, publisherValues, publisherValues.length, false);
+        Remapped d = remap(dates, dateValues, dateValues.length, true);
+        writer.writeInts(a.column(), a.column().length);
+        writer.writeInts(p.column(), p.column().length);
+        writer.writeInts(d.column(), d.column().length);
+        writer.writeStrings(a.values(), a.values().length);
+        writer.writeStrings(p.values(), p.values().length);
+        writer.writeStrings(d.values(), d.values().length);
+    }
+
+    static CompactBookCatalog read(BookSnapshot.Reader reader) {
+        int[] ids = reader.readInts();
+        int[] table = reader.readInts();
+        Utf8Column titles = Utf8Column.read(reader);
+        Utf8Column isbns = Utf8Column.read(reader);
+        Utf8Column descriptions = Utf8Column.read(reader);
+        int[] authors = reader.readInts();
+        int[] publishers = reader.readInts();
+        int[] dates = reader.readInts();
+        Dictionaries dictionaries = new Dictionaries(Dictionary.of(reader.readStrings()),
+                Dictionary.of(reader.readStrings()), Dictionary.of(reader.readStrings()));
+        for (int[] column : new int[][]{authors, publishers, dates}) {
+            if (column.length != ids.length) {
+                throw new IllegalArgumentException("Column length mismatch");
+            }
+        }
+        return new CompactBookCatalog(ids, table, titles, isbns, descriptions, authors, publishers, dates,
+                dictionaries);
+    }
+
+    @Override
+    public Storage storage() {
+        return Storage.COMPACT;
+    }
+
+    @Override
+    protected Book bookAt(int position) {
+        return new Book(ids[position],
+                titles.get(position),
+                decode(authorValues, authors[position]),
+                decode(publisherValues, publishers[position]),
+                formatDate(dates[position], dateValues),
+                isbns.get(position),
+                descriptions.get(position));
+    }
+
+    private static String decode(String[] values, int code) {
+        return code == NULL_CODE ? null : values[code];
+    }
+
+    static int packDate(String value, Dictionary fallback) {
+        if (value == null) {
+            return 0;
+        }
+        int space = value.indexOf(' ');
+        if (space > 0 && value.length() - space == 5) {
+            try {
+                Month month = Month.valueOf(value.substring(0, space).toUpperCase(Locale.ROOT));
+                int year = Integer.parseInt(value, space + 1, value.length(), 10);
+                int packed = year << 4 | month.getValue();
+                // упаковываем, только если обратное форматирование даёт ту же строку
+                if (year > 0 && value.equals(formatDate(packed, null))) {
+                    return packed;
+                }
+            } catch (IllegalArgumentException ignored) {
+                // нестандартная дата уходит в словарь
+            }
+        }
+        return -(fallback.encode(value) + 1);
+    }
+
+    static String formatDate(int packed, String[] fallback) {
+        if (packed == 0) {
+            return null;
+        }
+        if (packed < 0) {
+            return fallback[-packed - 1];
+        }
+        return Month.of(packed & 0xF).getDisplayName(TextStyle.FULL, Locale.ENGLISH) + " " + (packed >>> 4);
+    }
+
+    @Override
+    protected Builder builder(int expectedSize) {
+        return new Builder() {
+            private final int[] ids = new int[expectedSize];
+            private final Utf8Column.Builder titles = new Utf8Column.Builder(expectedSize);
+            private final Utf8Column.Builder isbns = new Utf8Column.Builder(expectedSize);
+            private final Utf8Column.Builder descriptions = new Utf8Column.Builder(expectedSize);
+            private final int[] authors = new int[expectedSize];
+            private final int[] publishers = new int[expectedSize];
+            private final int[] dates = new int[expectedSize];
+            private int size;
+
+            @Override
+            public void copy(BookCatalog catalog, int position) {
+                if (!(catalog instanceof CompactBookCatalog source)) {
+                    add(catalog.bookAt(position));
+                    return;
+                }
+                ids[size] = source.ids[position];
+                titles.copy(source.titles, position);
+                isbns.copy(source.isbns, position);
+                descriptions.copy(source.descriptions, position);
+                if (source.dictionaries == dictionaries) {
+                    authors[size] = source.authors[position];
+                    publishers[size] = source.publishers[position];
+                    dates[size++] = source.dates[position];
+                } else {
+                    // чужой словарь: перекодируем значения, сами строки не копируются
+                    authors[size] = dictionaries.authors.encode(decode(source.authorValues, source.authors[position]));
+                    publishers[size] = dictionaries.publishers.encode(
+                            decode(source.publisherValues, source.publishers[position]));
+                    int date = source.dates[position];
+                    dates[size++] = date < 0 ? -(dictionaries.dates.encode(source.dateValues[-date - 1]) + 1) : date;
+                }
+            }
+
+            @Override
+            public void add(Book book) {
+                ids[size] = book.getId();
+                titles.add(book.getTitle());
+                isbns.add(book.getIsbn());
+                descriptions.add(book.getDescription());
+                authors[size] = dictionaries.authors.encode(book.getAuthor());
+                publishers[size] = dictionaries.publishers.encode(book.getPublisher());
+                dates[size++] = packDate(book.getDateCreated(), dictionaries.dates);
+            }
+
+            @Override
+            public BookCatalog build() {
+                return CompactBookCatalog.build(Arrays.copyOf(ids, size), titles.build(), isbns.build(),
+                        descriptions.build(), Arrays.copyOf(authors, size), Arrays.copyOf(publishers, size),
+                        Arrays.copyOf(dates, size), dictionaries);
+            }
+        };
+    }
+
+    /**
+     * Строки подряд в одном byte[]; значение i лежит в [offsets[i], offsets[i + 1]).
+     */
+    static final class Utf8Column {
+        final byte[] data;
+        final int[] offsets;
+        // позиции null-значений, null если таких нет
+        final BitSet nulls;
+
+        Utf8Column(byte[] data, int[] offsets, BitSet nulls) {
+            this.data = data;
+            this.offsets = offsets;
+            this.nulls = nulls;
+        }
+
+        void write(BookSnapshot.Writer writer) throws IOException {
+            writer.writeBytes(data, data.length);
+            writer.writeInts(offsets, offsets.length);
+            writer.writeBitSet(nulls);
+        }
+
+        static Utf8Column read(BookSnapshot.Reader reader) {
+            return new Utf8Column(reader.readBytes(), reader.readInts(), reader.readBitSet());
+        }
+
+        String get(int position) {
+            if (nulls != null && nulls.get(position)) {
+                return null;
+            }
+            int from = offsets[position];
+            return new String(data, from, offsets[position + 1] - from, StandardCharsets.UTF_8);
+        }
+
+        static final class Builder {
+            private byte[] data;
+            private int[] offsets;
+            private BitSet nulls;
+            private int size;
+
+            Builder(int expectedSize) {
+                data = new byte[Math.max(16, expectedSize * 16)];
+                offsets = new int[expectedSize + 1];
+            }
+
+            void add(String value) {
+                if (value == null) {
+                    markNull();
+                    append(new byte[0], 0, 0);
+                } else {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    append(bytes, 0, bytes.length);
+                }
+            }
+
+            void copy(Utf8Column column, int position) {
+                if (column.nulls != null && column.nulls.get(position)) {
+                    markNull();
+                }
+                int from = column.offsets[position];
+                append(column.data, from, column.offsets[position + 1] - from);
+            }
+
+            private void markNull() {
+                if (nulls == null) {
+                    nulls = new BitSet();
+                }
+                nulls.set(size);
+            }
+
+            private void append(byte[] bytes, int from, int length) {
+                int end = offsets[size];
+                if (end + length > data.length) {
+                    data = Arrays.copyOf(data, Math.max(end + length, data.length * 2));
+                }
+                System.arraycopy(bytes, from, data, end, length);
+                offsets[++size] = end + length;
+            }
+
+            Utf8Column build() {
+                return new Utf8Column(Arrays.copyOf(data, offsets[size]), Arrays.copyOf(offsets, size + 1), nulls);
+            }
+        }
+    }
+
+    /**
+     * Словарь только на добавление. Кодирует писатель под блокировкой BookService,
+     * читатели видят лишь массив значений своего снимка. Значения удалённых книг
+     * остаются в нём до пересборки словарей в {@link #build}.
+     */
+    static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        String[] values = new String[16];
+
+        static Dictionary of(String[] values) {
+            Dictionary dictionary = new Dictionary();
+            for (String value : values) {
+                dictionary.encode(value);
+            }
+            return dictionary;
+        }
+
+        int encode(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = codes.size();
+                if (code == values.length) {
+                    values = Arrays.copyOf(values, code * 2);
+                }
+                values[code] = value;
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        int size() {
+            return codes.size();
+        }
+    }
+
+    static final class Dictionaries {
+        final Dictionary authors;
+        final Dictionary publishers;
+        final Dictionary dates;
+
+        Dictionaries() {
+            this(new Dictionary(), new Dictionary(), new Dictionary());
+        }
+
+        Dictionaries(Dictionary authors, Dictionary publishers, Dictionary dates) {
+            this.authors = authors;
+            this.publishers = publishers;
+            this.dates = dates;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Каталог, хранящий сами объекты Book.
+ */
+final class ObjectBookCatalog extends BookCatalog {
+
+    static final ObjectBookCatalog EMPTY = new ObjectBookCatalog(new int[0], new Book[0]);
+
+    private final Book[] books;
+    private final List<Book> view;
+
+    private ObjectBookCatalog(int[] ids, Book[] books) {
+        super(ids);
+        this.books = books;
+        this.view = Collections.unmodifiableList(Arrays.asList(books));
+    }
+
+    @Override
+    public Storage storage() {
+        return Storage.OBJECTS;
+    }
+
+    @Override
+    protected Book bookAt(int position) {
+        return books[position];
+    }
+
+    @Override
+    public List<Book> asList() {
+        return view;
+    }
+
+    @Override
+    protected Builder builder(int expectedSize) {
+        return new Builder() {
+            private final int[] ids = new int[expectedSize];
+            private final Book[] books = new Book[expectedSize];
+            private int size;
+
+            @Override
+            public void copy(BookCatalog source, int position) {
+                add(source.bookAt(position));
+            }
+
+            @Override
+            public void add(Book book) {
+                ids[size] = book.getId();
+                books[size++] = book;
+            }
+
+            @Override
+            public BookCatalog build() {
+                return new ObjectBookCatalog(Arrays.copyOf(ids, size), Arrays.copyOf(books, size));
+            }
+        };
+    }
+}
@@ -0,0 +1,130 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import dev.folomkin.jacksonformats.JacksonFormat;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static dev.folomkin.mockitospringbootdemo.BookController.*;
+
+/**
+ * {@link BookController} для WebFlux ({@code spring.main.web-application-type=reactive}).
+ * Потоковые ответы отдаются как {@link Flux}: следующая книга берётся из снимка,
+ * только когда Netty готов принять запись, поэтому медленный клиент держит
+ * соединение, а не поток и не буфер со всем каталогом.
+ * Готовые байты из {@link BookJsonCache} отдаются прямо на event loop, а кодирование
+ * и MD5 при промахе кеша уходят в {@code boundedElastic}, чтобы не держать event loop.
+ */
+@RestController
+@RequestMapping("/books")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveBookController {
+
+    private final ReactiveBookService bookService;
+    private final BookSearchIndex searchIndex;
+    private final BookJsonCache jsonCache;
+
+    public ReactiveBookController(ReactiveBookService bookService, BookSearchIndex searchIndex,
+                                  BookJsonCache jsonCache) {
+        this.bookService = bookService;
+        this.searchIndex = searchIndex;
+        this.jsonCache = jsonCache;
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<?>> findAll(@RequestParam(required = false) Integer limit,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                           ServerHttpRequest request) {
+        if (limit == null && cursor == null) {
+            // If-None-Match с совпавшим ETag WebFlux превращает в 304 без тела
+            JacksonFormat format = JacksonFormat.negotiate(accept);
+            BookJsonCache.Entry entry = jsonCache.cachedAll(format);
+            if (entry != null) {
+                return Mono.just(cached(entry));
+            }
+            return Mono.<ResponseEntity<?>>fromSupplier(() -> cached(jsonCache.all(format)))
+                    .subscribeOn(Schedulers.boundedElastic());
+        }
+        int size = pageSize(limit);
+        return bookService.findPage(decodeCursor(cursor), size).map(page -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+            if (page.hasNext()) {
+                response.header(HttpHeaders.LINK, "<" + UriComponentsBuilder.fromUri(request.getURI())
+                        .replaceQueryParam("limit", size)
+                        .replaceQueryParam("cursor", encodeCursor(page.nextAfterId()))
+                        .toUriString() + ">; rel=\"next\"");
+            }
+            return response.body(page.books());
+        });
+    }
+
+    // JSON-массив собирается кодеком по элементам, весь ответ в памяти не собирается
+    @GetMapping(params = "stream=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<Book> streamAll(@RequestParam(required = false) Integer limit,
+                                @RequestParam(required = false) String cursor) {
+        return streamedBooks(limit, cursor);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Book> streamNdjson(@RequestParam(required = false) Integer limit,
+                                   @RequestParam(required = false) String cursor) {
+        return streamedBooks(limit, cursor);
+    }
+
+    @GetMapping(params = "ids")
+    public Mono<List<BookLookup>> findMany(@RequestParam int[] ids) {
+        return bookService.findMany(checkIds(ids));
+    }
+
+    @PostMapping("/_mget")
+    public Mono<List<BookLookup>> findMany(@RequestBody Mono<BookIds> request) {
+        return request.map(body -> checkIds(body.ids())).flatMap(bookService::findMany);
+    }
+
+    @GetMapping("/search")
+    public Mono<List<BookSearchHit>> search(@RequestParam String q,
+                                            @RequestParam(required = false) Integer limit) {
+        int size = limit == null ? DEFAULT_SEARCH_SIZE : pageSize(limit);
+        return Mono.fromSupplier(() -> searchIndex.search(q, size));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<byte[]>> findOne(@PathVariable int id,
+                                                @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                                String accept) {
+        JacksonFormat format = JacksonFormat.negotiate(accept);
+        BookJsonCache.Entry entry = jsonCache.cachedOne(id, format);
+        if (entry != null) {
+            return Mono.just(cached(entry));
+        }
+        return Mono.fromSupplier(() -> cached(jsonCache.one(id, format)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorMap(NoSuchElementException.class,
+                        e -> new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage()));
+    }
+
+    private Flux<Book> streamedBooks(Integer limit, String cursor) {
+        int size = limit == null ? Integer.MAX_VALUE : checkLimit(limit);
+        return bookService.stream(decodeCursor(cursor), size);
+    }
+}
@@ -0,0 +1,38 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Неблокирующее чтение каталога для WebFlux.
+ * Читатели {@link BookService} работают с неизменяемым снимком без блокировок,
+ * поэтому чтение выполняется прямо на потоке event loop, без переключения планировщика.
+ */
+@Service
+public class ReactiveBookService {
+
+    private final BookService bookService;
+
+    public ReactiveBookService(BookService bookService) {
+        this.bookService = bookService;
+    }
+
+    public Mono<BookPage> findPage(Integer afterId, int limit) {
+        return Mono.fromSupplier(() -> bookService.findPage(afterId, limit));
+    }
+
+    public Mono<List<BookLookup>> findMany(int[] ids) {
+        return Mono.fromSupplier(() -> bookService.findMany(ids));
+    }
+
+    /**
+     * Книги снимка на момент подписки. Для компактной раскладки объекты Book
+     * собираются по мере запроса подписчика, медленный клиент не раздувает память.
+     */
+    public Flux<Book> stream(Integer afterId, int limit) {
+        return Flux.defer(() -> Flux.fromIterable(bookService.snapshot().page(afterId, limit)));
+    }
+}
@@ -0,0 +1,228 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(BookController.class)
+@Import({BookService.class, BookSearchIndex.class, BookJsonCache.class, BinaryFormatsConfiguration.class})
+@EnableConfigurationProperties(BookCatalogProperties.class)
+class BookControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookService bookService;
+
+    @BeforeEach
+    void setUp() {
+        List<Book> books = new ArrayList<>();
+        for (int id = 10; id <= 50; id += 10) {
+            books.add(new Book(id, "Book " + id, "Author", "Publisher", "May 2020", "isbn", "Java"));
+        }
+        bookService.saveAll(books);
+    }
+
+    @Test
+    void findAll_WithoutParameters_ReturnsWholeCatalog() throws Exception {
+        this.mockMvc.perform(get("/books"))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON),
+                        jsonPath("$.length()").value(8),
+                        header().doesNotExist(HttpHeaders.LINK)
+                );
+    }
+
+    @Test
+    void findAll_WithLimit_ReturnsPageAndNextLink() throws Exception {
+        this.mockMvc.perform(get("/books").param("limit", "2")
+                        .param("cursor", BookController.encodeCursor(3)))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$[*].id").value(contains(10, 20)),
+                        header().string(HttpHeaders.LINK, containsString(
+                                "cursor=" + BookController.encodeCursor(20)))
+                );
+
+        this.mockMvc.perform(get("/books").param("limit", "5")
+                        .param("cursor", BookController.encodeCursor(30)))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$[*].id").value(contains(40, 50)),
+                        header().doesNotExist(HttpHeaders.LINK)
+                );
+    }
+
+    @Test
+    void findOne_MatchingIfNoneMatch_ReturnsNotModifiedUntilBookChanges() throws Exception {
+        String etag = this.mockMvc.perform(get("/books/20"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.title").value("Book 20"),
+                        header().exists(HttpHeaders.ETAG)
+                )
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        this.mockMvc.perform(get("/books/20").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpectAll(
+                        status().isNotModified(),
+                        content().string("")
+                );
+
+        bookService.save(new Book(20, "Book 20, 2nd edition", "Author", "Publisher", "May 2021", "isbn", "Java"));
+
+        this.mockMvc.perform(get("/books/20").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.title").value("Book 20, 2nd edition")
+                );
+    }
+
+    @Test
+    void findAll_MatchingIfNoneMatch_ReturnsNotModified() throws Exception {
+        String etag = this.mockMvc.perform(get("/books"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        this.mockMvc.perform(get("/books").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        bookService.delete(10);
+
+        this.mockMvc.perform(get("/books").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(7)
+                );
+    }
+
+    @Test
+    void findAll_BinaryFormatAccepted_ReturnsSameDocument() throws Exception {
+        var json = this.mockMvc.perform(get("/books")).andReturn().getResponse();
+
+        var cbor = this.mockMvc.perform(get("/books").accept(MediaType.APPLICATION_CBOR))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(MediaType.APPLICATION_CBOR),
+                        header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT))
+                )
+                .andReturn().getResponse();
+        assertEquals(new ObjectMapper().readTree(json.getContentAsByteArray()),
+                new ObjectMapper(new CBORFactory()).readTree(cbor.getContentAsByteArray()));
+        assertNotEquals(json.getHeader(HttpHeaders.ETAG), cbor.getHeader(HttpHeaders.ETAG));
+
+        // страницы пишет конвертер Smile, а не кеш
+        byte[] smile = this.mockMvc.perform(get("/books").param("limit", "2")
+                        .header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/x-jackson-smile"))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentTypeCompatibleWith("application/x-jackson-smile")
+                )
+                .andReturn().getResponse().getContentAsByteArray();
+        JsonNode page = new ObjectMapper(new SmileFactory()).readTree(smile);
+        assertEquals(2, page.size());
+        assertEquals(1, page.get(0).get("id").asInt());
+    }
+
+    @Test
+    void findMany_IdsParameter_ReturnsBooksInRequestOrderAndMarksMissing() throws Exception {
+        this.mockMvc.perform(get("/books").param("ids", "30,7,10"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$[*].id").value(contains(30, 7, 10)),
+                        jsonPath("$[*].found").value(contains(true, false, true)),
+                        jsonPath("$[0].book.title").value("Book 30"),
+                        jsonPath("$[1].book").doesNotExist()
+                );
+    }
+
+    @Test
+    void findMany_PostedIds_ReturnsBooksAndRejectsTooManyIds() throws Exception {
+        this.mockMvc.perform(post("/books/_mget").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\": [2, 50, 99]}"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$[*].id").value(contains(2, 50, 99)),
+                        jsonPath("$[*].found").value(contains(true, true, false))
+                );
+
+        String ids = IntStream.rangeClosed(1, BookController.MAX_PAGE_SIZE + 1)
+                .mapToObj(Integer::toString).collect(Collectors.joining(","));
+        this.mockMvc.perform(post("/books/_mget").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\": [" + ids + "]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void search_ReturnsRankedBooks() throws Exception {
+        this.mockMvc.perform(get("/books/search").param("q", "spring"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$[*].book.id").value(contains(2, 3)),
+                        jsonPath("$[0].score").isNumber()
+                );
+    }
+
+    @Test
+    void findAll_MalformedCursor_ReturnsBadRequest() throws Exception {
+        this.mockMvc.perform(get("/books").param("cursor", "not a cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamAll_NdjsonAccepted_WritesBookPerLine() throws Exception {
+        MvcResult result = this.mockMvc.perform(get("/books")
+                        .param("cursor", BookController.encodeCursor(30))
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(result))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON),
+                        content().string(matchesPattern(
+                                "\\{\"id\":40,[^\\n]*}\\n\\{\"id\":50,[^\\n]*}\\n"))
+                );
+    }
+
+    @Test
+    void streamAll_StreamFlag_WritesJsonArray() throws Exception {
+        MvcResult result = this.mockMvc.perform(get("/books").param("stream", "true").param("limit", "2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(result))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$[*].id").value(contains(1, 2))
+                );
+    }
+}
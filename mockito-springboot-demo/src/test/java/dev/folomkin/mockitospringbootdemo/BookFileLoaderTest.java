@@ -0,0 +1,97 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookFileLoaderTest {
+
+    @TempDir
+    Path directory;
+
+    private static BookFileLoader loader(BookCatalog.Storage storage) {
+        // маленькие куски, чтобы файл разбился на много частей
+        return new BookFileLoader(storage, ForkJoinPool.commonPool(), 256);
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookCatalog.Storage.class)
+    void load_Csv_ParsesQuotedFieldsAndSkipsMalformedLines(BookCatalog.Storage storage) throws IOException {
+        Path file = Files.writeString(directory.resolve("books.csv"), """
+                id,title,author,publisher,dateCreated,isbn,description
+                1,97 Things Every Java Programmer Should Know,"Kevlin Henney, Trisha Gee","OReilly Media, Inc.",May 2020,9781491952696,Java
+                2,"Spring Boot: ""Up"" and Running",Mark Heckler,"OReilly Media, Inc.",February 2021,9781492076919,Spring\r
+                not-a-number,title,author,publisher,May 2020,isbn,Java
+                3,too,few,fields
+
+                4,"unterminated,author,publisher,May 2020,isbn,Java
+                5,Чистый код,Роберт Мартин,Питер,May 2020,978-5-4461,Java
+                """, StandardCharsets.UTF_8);
+
+        BookFileLoader.Result result = loader(storage).load(file);
+
+        assertEquals(3, result.report().records());
+        assertEquals(3, result.report().malformed());
+        assertEquals(Files.size(file), result.report().bytes());
+        BookCatalog catalog = result.catalog();
+        assertEquals(storage, catalog.storage());
+        assertEquals("Kevlin Henney, Trisha Gee", catalog.get(1).getAuthor());
+        assertEquals("Spring Boot: \"Up\" and Running", catalog.get(2).getTitle());
+        assertEquals("Spring", catalog.get(2).getDescription());
+        assertEquals("Роберт Мартин", catalog.get(5).getAuthor());
+        assertNull(catalog.get(3));
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookCatalog.Storage.class)
+    void load_JsonLines_MergesChunksAndKeepsLastDuplicate(BookCatalog.Storage storage) throws IOException {
+        Path file = directory.resolve("books.jsonl");
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            for (int i = 1000; i > 0; i--) {
+                writer.write("{\"id\":" + i + ",\"title\":\"Book " + i + "\",\"author\":\"Author " + (i % 7)
+                        + "\",\"publisher\":null,\"dateCreated\":\"May 2020\",\"isbn\":\"" + i
+                        + "\",\"description\":\"Java\",\"tags\":[\"x\"]}\n");
+                if (i % 100 == 0) {
+                    writer.write("{\"title\":\"no id\"}\n{broken json\n");
+                }
+            }
+            writer.write("{\"id\":10,\"title\":\"Book 10, reprint\"}");
+        }
+
+        BookFileLoader.Result result = loader(storage).load(file);
+
+        assertEquals(1001, result.report().records());
+        assertEquals(20, result.report().malformed());
+        assertEquals(1000, result.catalog().size());
+        assertEquals("Book 10, reprint", result.catalog().get(10).getTitle());
+        assertNull(result.catalog().get(10).getAuthor());
+        assertEquals("Author 5", result.catalog().get(999).getAuthor());
+        assertEquals("May 2020", result.catalog().get(999).getDateCreated());
+        assertEquals(1, result.catalog().asList().get(0).getId());
+    }
+
+    @Test
+    void load_ReplacesServiceCatalog() throws IOException {
+        Path file = Files.writeString(directory.resolve("books.jsonl"),
+                "{\"id\":42,\"title\":\"Loaded\"}\n", StandardCharsets.UTF_8);
+        BookService service = new BookService();
+        service.save(new Book(1, "Old", null, null, null, null, null));
+
+        BookFileLoader.Report report = service.load(file);
+
+        assertEquals(1, report.records());
+        assertTrue(report.recordsPerSecond() > 0);
+        assertEquals("Loaded", service.findOne(42).getTitle());
+        assertEquals(1, service.findAll().size());
+    }
+}
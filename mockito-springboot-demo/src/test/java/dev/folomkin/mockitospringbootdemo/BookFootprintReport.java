@@ -0,0 +1,46 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import java.time.Month;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Отчёт о занимаемой каталогом памяти (байт на книгу) для обеих раскладок.
+ * Строки создаются заново для каждой записи, как при разборе выгрузки.
+ * Запуск: main-метод, лучше с -Xmx4g.
+ */
+public class BookFootprintReport {
+
+    public static void main(String[] args) {
+        for (int size : new int[]{10_000, 100_000, 1_000_000}) {
+            List<Book> books = generate(size);
+            for (BookCatalog.Storage storage : BookCatalog.Storage.values()) {
+                BookCatalog catalog = BookCatalog.empty(storage).withAll(books);
+                long bytes = GraphLayout.parseInstance(catalog).totalSize();
+                System.out.printf("books=%,d  %-7s  total=%,d bytes  per book=%,.1f bytes%n",
+                        size, storage, bytes, (double) bytes / size);
+            }
+        }
+    }
+
+    static List<Book> generate(int size) {
+        Random random = new Random(42);
+        List<Book> books = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String month = Month.of(1 + random.nextInt(12)).getDisplayName(TextStyle.FULL, Locale.ENGLISH);
+            books.add(new Book(i,
+                    "Practical Guide to Topic " + i + ", " + (1 + random.nextInt(5)) + " Edition",
+                    new String("Author Name " + random.nextInt(20_000)),
+                    new String("Publisher House " + random.nextInt(300) + ", Inc."),
+                    month + " " + (1990 + random.nextInt(35)),
+                    Long.toString(9_780_000_000_000L + i),
+                    new String("Category " + random.nextInt(50))));
+        }
+        return books;
+    }
+}
@@ -0,0 +1,86 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookSearchIndexTest {
+
+    private BookService bookService;
+    private BookSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        bookService = new BookService();
+        bookService.saveAll(List.of(
+                new Book(1, "Java Concurrency in Practice", "Brian Goetz", "Addison-Wesley", "May 2006", "1", "Java"),
+                new Book(2, "Spring in Action", "Craig Walls", "Manning", "May 2022", "2", "Spring, Java"),
+                new Book(3, "Effective Java", "Joshua Bloch", "Addison-Wesley", "Dec 2017", "3", "Java")));
+        searchIndex = new BookSearchIndex(bookService);
+    }
+
+    private List<Integer> ids(String query, int limit) {
+        return searchIndex.search(query, limit).stream().map(hit -> hit.book().getId()).toList();
+    }
+
+    @Test
+    void search_MatchesAllTermsCaseInsensitive() {
+        assertEquals(List.of(1), ids("JAVA goetz", 10));
+        assertEquals(List.of(1, 3), ids("addison-wesley", 10));
+        assertEquals(List.of(), ids("java kotlin", 10));
+        assertEquals(List.of(), ids("  ,. ", 10));
+    }
+
+    @Test
+    void search_RanksTitleMatchesHigherAndHonoursLimit() {
+        // "java" в заголовке весит больше, чем в описании
+        assertEquals(List.of(1, 3, 2), ids("java", 10));
+        assertEquals(List.of(1, 3), ids("java", 2));
+    }
+
+    @Test
+    void search_FollowsCatalogChanges() {
+        bookService.save(new Book(2, "Kotlin in Action", "Dmitry Jemerov", "Manning", "Feb 2017", "2", "Kotlin"));
+        bookService.delete(3);
+
+        assertEquals(List.of(1), ids("java", 10));
+        assertEquals(List.of(2), ids("kotlin manning", 10));
+        assertEquals(List.of(), ids("spring", 10));
+    }
+
+    @Test
+    void search_FollowsBatchChangesWithRepeatedIds() {
+        // пакет применяется по термам; последняя версия книги 4 убирает из неё "kotlin"
+        bookService.saveAll(List.of(
+                new Book(4, "Kotlin in Action", "Dmitry Jemerov", "Manning", "Feb 2017", "4", "Kotlin"),
+                new Book(1, "Concurrency in Practice", "Brian Goetz", "Addison-Wesley", "May 2006", "1", "Threads"),
+                new Book(4, "Java in Action", "Dmitry Jemerov", "Manning", "Feb 2017", "4", "Java")));
+
+        assertEquals(List.of(3, 4, 2), ids("java", 10));
+        assertEquals(List.of(2, 4), ids("manning", 10));
+        assertEquals(List.of(), ids("kotlin", 10));
+        assertEquals(List.of(1), ids("goetz", 10));
+    }
+
+    @Test
+    void search_LargeCatalogUsesTopK() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 100; i < 5_000; i++) {
+            String title = i % 10 == 0 ? "java java java " + i : "java " + i;
+            books.add(new Book(i, title, "author", "publisher", "May 2020", "isbn", "text"));
+        }
+        bookService.saveAll(books);
+
+        List<BookSearchHit> hits = searchIndex.search("java", 5);
+        assertEquals(List.of(100, 110, 120, 130, 140), hits.stream().map(hit -> hit.book().getId()).toList());
+        assertEquals(List.of(4990), ids("java 4990", 5));
+        // лимит больше заготовленной головы списка идёт по полному пути и даёт тот же порядок
+        assertEquals(List.of(100, 110, 120, 130, 140), ids("java", 500).subList(0, 5));
+        assertTrue(hits.get(0).score() > searchIndex.search("java", 500).get(499).score());
+    }
+}
@@ -0,0 +1,72 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookServiceTest {
+
+    private static Book book(int id, String title) {
+        return new Book(id, title, "Author", "Publisher", "May 2020", "isbn-" + id, "Java");
+    }
+
+    @Test
+    void findOne_ReturnsBookById() {
+        BookService service = new BookService();
+        service.saveAll(List.of(book(3, "three"), book(1, "one"), book(2, "two")));
+
+        assertEquals("two", service.findOne(2).getTitle());
+        assertThrows(NoSuchElementException.class, () -> service.findOne(4));
+    }
+
+    @Test
+    void findMany_KeepsRequestOrderAndReportsMissingIds() {
+        BookService service = new BookService();
+        service.saveAll(List.of(book(1, "one"), book(2, "two")));
+
+        List<BookLookup> result = service.findMany(new int[]{2, 5, 1, 2});
+
+        assertEquals(List.of(2, 5, 1, 2), result.stream().map(BookLookup::id).toList());
+        assertEquals(List.of(true, false, true, true), result.stream().map(BookLookup::found).toList());
+        assertEquals("one", result.get(2).book().getTitle());
+        assertNull(result.get(1).book());
+    }
+
+    @Test
+    void findAll_ReturnsImmutableSnapshotSortedById() {
+        BookService service = new BookService();
+        service.saveAll(List.of(book(2, "two"), book(1, "one")));
+        List<Book> snapshot = service.findAll();
+
+        service.save(book(3, "three"));
+        service.save(book(1, "first"));
+        service.delete(2);
+
+        assertEquals(List.of(1, 2), snapshot.stream().map(Book::getId).toList());
+        assertEquals(List.of(1, 3), service.findAll().stream().map(Book::getId).toList());
+        assertEquals("first", service.findOne(1).getTitle());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(book(5, "five")));
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookCatalog.Storage.class)
+    void findOne_FindsEveryBookInLargeCatalog(BookCatalog.Storage storage) {
+        BookService service = new BookService(new BookCatalogProperties(storage, null, null));
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            books.add(book(i * 7 - 5_000, "book " + i));
+        }
+        service.saveAll(books);
+
+        for (Book book : books) {
+            assertEquals(book.getTitle(), service.findOne(book.getId()).getTitle());
+        }
+        assertThrows(NoSuchElementException.class, () -> service.findOne(1));
+    }
+}
@@ -0,0 +1,105 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private static List<Book> books() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            books.add(new Book(i * 3, "Book " + i, "Author " + i % 7, i % 5 == 0 ? null : "Publisher",
+                    i % 11 == 0 ? "Dec 2017" : "May 2020", "isbn-" + i, i % 2 == 0 ? "Java" : "Spring"));
+        }
+        books.add(new Book(5_000, null, null, null, null, null, null));
+        return books;
+    }
+
+    private static String describe(Book book) {
+        return String.join("|", String.valueOf(book.getId()), book.getTitle(), book.getAuthor(), book.getPublisher(),
+                book.getDateCreated(), book.getIsbn(), book.getDescription());
+    }
+
+    private static List<String> hits(BookSearchIndex index, String query) {
+        return index.search(query, 20).stream().map(hit -> hit.book().getId() + ":" + hit.score()).toList();
+    }
+
+    private static BookService service(BookCatalog.Storage storage) {
+        return new BookService(new BookCatalogProperties(storage, null, null));
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookCatalog.Storage.class)
+    void restoreSnapshot_RestoresCatalogAndSearchIndex(BookCatalog.Storage storage) throws IOException {
+        Path file = directory.resolve("books.snap");
+        BookService source = service(BookCatalog.Storage.OBJECTS);
+        source.saveAll(books());
+        BookSearchIndex sourceIndex = new BookSearchIndex(source);
+        source.writeSnapshot(file);
+
+        BookService restored = service(storage);
+        assertTrue(restored.restoreSnapshot(file));
+        BookSearchIndex restoredIndex = new BookSearchIndex(restored);
+
+        assertEquals(storage, restored.snapshot().storage());
+        assertEquals(source.findAll().stream().map(BookSnapshotTest::describe).toList(),
+                restored.findAll().stream().map(BookSnapshotTest::describe).toList());
+        for (String query : List.of("author 3", "java", "book 42", "publisher spring")) {
+            assertEquals(hits(sourceIndex, query), hits(restoredIndex, query));
+        }
+        // после изменений каталога секции снимка больше не используются
+        restored.save(new Book(1, "Kotlin in Action", "Dmitry Jemerov", "Manning", "May 2017", "1", "Kotlin"));
+        assertEquals(List.of(1), restoredIndex.search("kotlin", 10).stream().map(hit -> hit.book().getId()).toList());
+    }
+
+    @Test
+    void restoreSnapshot_RejectsCorruptedOrTruncatedFile() throws IOException {
+        Path file = directory.resolve("books.snap");
+        BookService source = service(BookCatalog.Storage.COMPACT);
+        source.saveAll(books());
+        source.writeSnapshot(file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        BookService corrupted = service(BookCatalog.Storage.COMPACT);
+        assertFalse(corrupted.restoreSnapshot(file));
+        assertEquals(0, corrupted.snapshot().size());
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 100));
+        assertFalse(service(BookCatalog.Storage.COMPACT).restoreSnapshot(file));
+        assertFalse(service(BookCatalog.Storage.COMPACT).restoreSnapshot(directory.resolve("missing.snap")));
+    }
+
+    @Test
+    void writeSnapshot_ReplacesPreviousSnapshot() throws IOException {
+        Path file = directory.resolve("books.snap");
+        BookService source = service(BookCatalog.Storage.COMPACT);
+        source.saveAll(books());
+        source.writeSnapshot(file);
+        source.delete(0);
+        source.writeSnapshot(file);
+
+        BookService restored = service(BookCatalog.Storage.COMPACT);
+        assertTrue(restored.restoreSnapshot(file));
+        assertEquals(books().size() - 1, restored.snapshot().size());
+        assertNull(restored.snapshot().get(0));
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactBookCatalogTest {
+
+    private static void assertSameBook(Book expected, Book actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getAuthor(), actual.getAuthor());
+        assertEquals(expected.getPublisher(), actual.getPublisher());
+        assertEquals(expected.getDateCreated(), actual.getDateCreated());
+        assertEquals(expected.getIsbn(), actual.getIsbn());
+        assertEquals(expected.getDescription(), actual.getDescription());
+    }
+
+    @Test
+    void get_RestoresEveryField() {
+        List<Book> books = List.of(
+                new Book(1, "97 Things Every Java Programmer Should Know", "Kevlin Henney, Trisha Gee",
+                        "OReilly Media, Inc.", "May 2020", "9781491952696", "Java"),
+                new Book(2, "Чистый код", "Роберт Мартин", "Питер", "February 2021", "978-5-4461", "Java"),
+                new Book(3, null, null, null, null, null, null),
+                new Book(4, "", "", "", "Feb 2017", "", ""),
+                new Book(5, "Title", "Author", "OReilly Media, Inc.", "may 2020", "isbn", "Spring"));
+        BookCatalog catalog = BookCatalog.empty(BookCatalog.Storage.COMPACT).withAll(books);
+
+        assertEquals(BookCatalog.Storage.COMPACT, catalog.storage());
+        for (Book book : books) {
+            assertSameBook(book, catalog.get(book.getId()));
+        }
+        assertNull(catalog.get(6));
+    }
+
+    @Test
+    void packDate_PacksOnlyCanonicalMonthYear() {
+        CompactBookCatalog.Dictionary fallback = new CompactBookCatalog.Dictionary();
+
+        int packed = CompactBookCatalog.packDate("May 2020", fallback);
+        assertTrue(packed > 0);
+        assertEquals("May 2020", CompactBookCatalog.formatDate(packed, null));
+        assertTrue(CompactBookCatalog.packDate("MAY 2020", fallback) < 0);
+        assertTrue(CompactBookCatalog.packDate("2020-05-01", fallback) < 0);
+        assertEquals(0, CompactBookCatalog.packDate(null, fallback));
+        assertEquals(2, fallback.size());
+    }
+
+    @Test
+    void withAndWithout_KeepOlderSnapshotsIntact() {
+        BookCatalog first = BookCatalog.empty(BookCatalog.Storage.COMPACT).withAll(List.of(
+                new Book(1, "One", "A", "P", "May 2020", "1", "Java"),
+                new Book(2, "Two", "B", "P", "May 2020", "2", "Java")));
+        BookCatalog second = first.with(new Book(2, "Two, revised", "C", "Q", "June 2021", "2", "Kotlin"))
+                .with(new Book(3, "Three", "A", "P", "July 2022", "3", "Java"))
+                .without(1);
+
+        assertEquals("Two", first.get(2).getTitle());
+        assertEquals("B", first.get(2).getAuthor());
+        assertEquals(List.of(2, 3), second.asList().stream().map(Book::getId).toList());
+        assertEquals("Two, revised", second.get(2).getTitle());
+        assertEquals("Kotlin", second.get(2).getDescription());
+        assertEquals("June 2021", second.get(2).getDateCreated());
+    }
+
+    @Test
+    void with_ReplacedValuesDoNotAccumulateInDictionaries() {
+        BookCatalog first = BookCatalog.empty(BookCatalog.Storage.COMPACT).withAll(List.of(
+                new Book(1, "One", "Author 0", "P", "May 2020", "1", "Java"),
+                new Book(2, "Two", "B", "P", "Someday", "2", "Java")));
+        BookCatalog catalog = first;
+        for (int i = 1; i <= 5_000; i++) {
+            catalog = catalog.with(new Book(1, "One", "Author " + i, "P", "May 2020", "1", "Java " + i));
+        }
+
+        CompactBookCatalog compact = (CompactBookCatalog) catalog;
+        assertTrue(compact.dictionaries.authors.size() <= CompactBookCatalog.COMPACTION_THRESHOLD + 2);
+        assertEquals("Author 5000", compact.get(1).getAuthor());
+        assertEquals("Java 5000", compact.get(1).getDescription());
+        assertEquals("Someday", compact.get(2).getDateCreated());
+        // старый снимок читает свой массив значений, пересборка его не трогает
+        assertEquals("Author 0", first.get(1).getAuthor());
+    }
+}
@@ -0,0 +1,157 @@
+package dev.folomkin.mockitospringbootdemo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@WebFluxTest(ReactiveBookController.class)
+@Import({BookService.class, ReactiveBookService.class, BookSearchIndex.class, BookJsonCache.class})
+@EnableConfigurationProperties(BookCatalogProperties.class)
+class ReactiveBookControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private BookService bookService;
+
+    @BeforeEach
+    void setUp() {
+        List<Book> books = new ArrayList<>();
+        for (int id = 10; id <= 50; id += 10) {
+            books.add(new Book(id, "Book " + id, "Author", "Publisher", "May 2020", "isbn", "Java"));
+        }
+        bookService.saveAll(books);
+    }
+
+    @Test
+    void findAll_WithLimit_ReturnsPageAndNextLink() {
+        this.webTestClient.get()
+                .uri(builder -> builder.path("/books").queryParam("limit", 2)
+                        .queryParam("cursor", BookController.encodeCursor(3)).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(HttpHeaders.LINK, containsString("cursor=" + BookController.encodeCursor(20)))
+                .expectBody().jsonPath("$[*].id").value(contains(10, 20));
+    }
+
+    @Test
+    void findOne_MatchingIfNoneMatch_ReturnsNotModified() {
+        String etag = this.webTestClient.get().uri("/books/20")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class).getResponseHeaders().getETag();
+
+        this.webTestClient.get().uri("/books/20").header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        this.webTestClient.get().uri("/books/404")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void findOne_BinaryFormatAccepted_ReturnsBinaryDocument() throws Exception {
+        byte[] smile = this.webTestClient.get().uri("/books/20")
+                .accept(MediaType.valueOf("application/x-jackson-smile"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType("application/x-jackson-smile")
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        assertEquals("Book 20", new ObjectMapper(new SmileFactory()).readTree(smile).get("title").asText());
+
+        // страницу пишет кодек, а не кеш
+        byte[] cbor = this.webTestClient.get()
+                .uri(builder -> builder.path("/books").queryParam("limit", 2)
+                        .queryParam("cursor", BookController.encodeCursor(3)).build())
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        assertEquals(20, new ObjectMapper(new CBORFactory()).readTree(cbor).get(1).get("id").asInt());
+    }
+
+    @Test
+    void findAll_CachedUntilCatalogChanges() {
+        // первый запрос кодирует список, второй отдаёт готовые байты
+        String etag = this.webTestClient.get().uri("/books")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class).getResponseHeaders().getETag();
+        this.webTestClient.get().uri("/books")
+                .exchange()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, etag);
+
+        // setUp следующего теста вернёт книгу как была
+        bookService.save(new Book(50, "Book 50, 2nd edition", "Author", "Publisher", "May 2020", "isbn", "Java"));
+
+        this.webTestClient.get().uri("/books").header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[-1].title").isEqualTo("Book 50, 2nd edition");
+    }
+
+    @Test
+    void findMany_ReturnsBooksInRequestOrderAndMarksMissing() {
+        this.webTestClient.get()
+                .uri(builder -> builder.path("/books").queryParam("ids", "40,5,20").build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[*].id").value(contains(40, 5, 20))
+                .jsonPath("$[*].found").value(contains(true, false, true));
+
+        this.webTestClient.post().uri("/books/_mget")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"ids\": [50, 10]}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[*].book.id").value(contains(50, 10));
+    }
+
+    @Test
+    void streamNdjson_EmitsBooksOnDemand() {
+        var books = this.webTestClient.get()
+                .uri(builder -> builder.path("/books").queryParam("cursor", BookController.encodeCursor(20)).build())
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(String.class).getResponseBody();
+
+        StepVerifier.create(books, 1)
+                .expectNextMatches(line -> line.startsWith("{\"id\":30,"))
+                .thenRequest(2)
+                .expectNextMatches(line -> line.startsWith("{\"id\":40,"))
+                .expectNextMatches(line -> line.startsWith("{\"id\":50,"))
+                .verifyComplete();
+    }
+
+    @Test
+    void streamAll_StreamFlag_WritesJsonArray() {
+        this.webTestClient.get()
+                .uri(builder -> builder.path("/books").queryParam("stream", true).queryParam("limit", 2).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[*].id").value(contains(1, 2));
+    }
+}
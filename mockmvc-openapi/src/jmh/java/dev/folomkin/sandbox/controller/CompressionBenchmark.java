@@ -0,0 +1,77 @@
+package dev.folomkin.sandbox.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.github.luben.zstd.Zstd;
+import dev.folomkin.jacksonformats.JacksonFormat;
+import dev.folomkin.sandbox.controller.ProductsRestController.ProductV1Presentation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Сжатие готового тела ответа со списком товаров: gzip с уровнем по умолчанию, как у Tomcat
+ * и Netty, и zstd с уровнем 3 для сравнения. Тело кодируется один раз в setUp.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CompressionBenchmark {
+
+    public enum Codec {
+        GZIP, ZSTD
+    }
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    JacksonFormat format;
+
+    @Param({"GZIP", "ZSTD"})
+    Codec codec;
+
+    private byte[] body;
+    private byte[] compressed;
+
+    @Setup
+    public void setUp() throws IOException {
+        body = format.objectMapper(Jackson2ObjectMapperBuilder.json())
+                .writerFor(new TypeReference<List<ProductV1Presentation>>() {
+                })
+                .writeValueAsBytes(SerializationBenchmark.products(SerializationBenchmark.PRODUCTS));
+        compressed = compress();
+    }
+
+    @Benchmark
+    public byte[] compress() throws IOException {
+        if (codec == Codec.ZSTD) {
+            return Zstd.compress(body, 3);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream(body.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(body);
+        }
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] decompress() throws IOException {
+        if (codec == Codec.ZSTD) {
+            return Zstd.decompress(compressed, body.length);
+        }
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return gzip.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package dev.folomkin.sandbox.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import dev.folomkin.jsoncodegen.ListJsonCodec;
+import dev.folomkin.sandbox.controller.ProductsRestController.ProductV1Presentation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON через ObjectMapper против кодеков, сгенерированных по {@code @GenerateJsonCodec}.
+ * Обе стороны пишут в один и тот же генератор, так что разница - только сериализаторы.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonCodecBenchmark {
+
+    private static final ListJsonCodec<ProductV1Presentation> PRODUCTS_CODEC =
+            new ListJsonCodec<>(ProductsRestController_ProductV1PresentationJsonCodec.INSTANCE);
+
+    private JsonFactory factory;
+    private ObjectWriter productsWriter;
+    private ObjectReader productsReader;
+    private List<ProductV1Presentation> products;
+    private byte[] productsBody;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(32 * 1024);
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        factory = mapper.getFactory();
+        var listType = new TypeReference<List<ProductV1Presentation>>() {
+        };
+        productsWriter = mapper.writerFor(listType);
+        productsReader = mapper.readerFor(listType);
+        products = SerializationBenchmark.products(SerializationBenchmark.PRODUCTS);
+        productsBody = productsWriter.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public int writeProductsJackson() throws IOException {
+        out.reset();
+        try (JsonGenerator generator = factory.createGenerator(out)) {
+            productsWriter.writeValue(generator, products);
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public int writeProductsGenerated() throws IOException {
+        out.reset();
+        try (JsonGenerator generator = factory.createGenerator(out)) {
+            PRODUCTS_CODEC.write(generator, products);
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public List<ProductV1Presentation> readProductsJackson() throws IOException {
+        try (JsonParser parser = factory.createParser(productsBody)) {
+            return productsReader.readValue(parser);
+        }
+    }
+
+    @Benchmark
+    public List<ProductV1Presentation> readProductsGenerated() throws IOException {
+        try (JsonParser parser = factory.createParser(productsBody)) {
+            parser.nextToken();
+            return PRODUCTS_CODEC.read(parser);
+        }
+    }
+}
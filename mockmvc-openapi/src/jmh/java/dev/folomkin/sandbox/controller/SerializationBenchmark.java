@@ -0,0 +1,100 @@
+package dev.folomkin.sandbox.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import dev.folomkin.jacksonformats.JacksonFormat;
+import dev.folomkin.sandbox.controller.ProductsRestController.ProductV1Presentation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация ответов в JSON, CBOR и Smile ObjectMapper-ами, собранными как в Spring MVC.
+ * {@code *Products} - список из {@link #PRODUCTS} товаров, как ответ {@code GET /api/catalogue/products}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SerializationBenchmark {
+
+    static final int PRODUCTS = 100;
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    JacksonFormat format;
+
+    private ObjectWriter productWriter;
+    private ObjectReader productReader;
+    private ObjectWriter productsWriter;
+    private ObjectReader productsReader;
+    private ProductV1Presentation product;
+    private byte[] productJson;
+    private List<ProductV1Presentation> products;
+    private byte[] productsBody;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = format.objectMapper(Jackson2ObjectMapperBuilder.json());
+        productWriter = mapper.writerFor(ProductV1Presentation.class);
+        productReader = mapper.readerFor(ProductV1Presentation.class);
+        var listType = new TypeReference<List<ProductV1Presentation>>() {
+        };
+        productsWriter = mapper.writerFor(listType);
+        productsReader = mapper.readerFor(listType);
+        product = new ProductV1Presentation("a396a088-172c-11ee-aa6f-4f6009552211",
+                "Молоко, 3,2%, 1 литр", "Молоко с жирностью 3,2% в упаковке 1 литр");
+        productJson = productWriter.writeValueAsBytes(product);
+        products = products(PRODUCTS);
+        productsBody = productsWriter.writeValueAsBytes(products);
+    }
+
+    // Случайные id и разные названия, чтобы сжатие не выигрывало на одинаковых строках
+    static List<ProductV1Presentation> products(int count) {
+        Random random = new Random(42);
+        String[] kinds = {"Молоко", "Кефир", "Ряженка", "Сметана", "Творог", "Йогурт", "Простокваша"};
+        List<ProductV1Presentation> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String title = kinds[random.nextInt(kinds.length)] + ", " + random.nextInt(10) + "," + random.nextInt(10)
+                    + "%, " + (100 + random.nextInt(900)) + " г";
+            String details = i % 4 == 0 ? null : title + ", годен до " + (1 + random.nextInt(28)) + "."
+                    + (1 + random.nextInt(12)) + ", поставщик " + random.nextInt(1000);
+            products.add(new ProductV1Presentation(new UUID(random.nextLong(), random.nextLong()).toString(),
+                    title, details));
+        }
+        return products;
+    }
+
+    @Benchmark
+    public byte[] writeProduct() throws IOException {
+        return productWriter.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public ProductV1Presentation readProduct() throws IOException {
+        return productReader.readValue(productJson);
+    }
+
+    @Benchmark
+    public byte[] writeProducts() throws IOException {
+        return productsWriter.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public List<ProductV1Presentation> readProducts() throws IOException {
+        return productsReader.readValue(productsBody);
+    }
+}
@@ -0,0 +1,31 @@
+package dev.folomkin.sandbox;
+
+import dev.folomkin.jacksonformats.JacksonFormat;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Конвертеры CBOR и Smile для Spring MVC. Стандартные знают только {@code application/cbor}
+ * и {@code application/x-jackson-smile} и собраны без настроек spring.jackson.*;
+ * эти ещё пишут и читают вендорские {@code application/*+cbor} и {@code application/*+smile}.
+ */
+@Configuration
+public class BinaryFormatsConfiguration {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        var converter = new MappingJackson2CborHttpMessageConverter(JacksonFormat.CBOR.objectMapper(builder));
+        converter.setSupportedMediaTypes(JacksonFormat.CBOR.mediaTypes());
+        return converter;
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        var converter = new MappingJackson2SmileHttpMessageConverter(JacksonFormat.SMILE.objectMapper(builder));
+        converter.setSupportedMediaTypes(JacksonFormat.SMILE.mediaTypes());
+        return converter;
+    }
+}
@@ -0,0 +1,17 @@
+package dev.folomkin.sandbox;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+/**
+ * @param log               журнал товаров; если не задан, товары живут только в памяти
+ * @param importBatchSize   сколько строк пакетной загрузки читается до ожидания их записи
+ * @param importMaxLineSize строка пакетной загрузки длиннее не читается в память и отклоняется
+ */
+@ConfigurationProperties(prefix = "catalogue.products")
+public record ProductStoreProperties(Path log, @DefaultValue("1000") int importBatchSize,
+                                     @DefaultValue("64KB") DataSize importMaxLineSize) {
+}
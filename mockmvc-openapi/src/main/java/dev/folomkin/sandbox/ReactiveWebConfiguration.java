@@ -0,0 +1,51 @@
+package dev.folomkin.sandbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.folomkin.jacksonformats.JacksonFormatCodecs;
+import dev.folomkin.sandbox.controller.ProductsRestController;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+import java.util.List;
+
+/**
+ * Настройки для {@code spring.main.web-application-type=reactive}.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfiguration implements WebFluxConfigurer {
+
+    private final ObjectMapper objectMapper;
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    public ReactiveWebConfiguration(ObjectMapper objectMapper, Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.objectMapper = objectMapper;
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    // в classpath и spring-boot-starter-web: без этого бина реактивное приложение поднялось бы на Tomcat
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Стандартный Jackson-кодек знает только {@code application/*+json} и {@code application/x-ndjson};
+     * результаты загрузки пишутся как NDJSON: объект на строку и сброс после каждого.
+     */
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        MediaType importResults = MediaType.valueOf(ProductsRestController.IMPORT_RESULTS_NDJSON);
+        Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper, importResults);
+        encoder.setStreamingMediaTypes(List.of(importResults));
+        configurer.customCodecs().register(encoder);
+        JacksonFormatCodecs.register(configurer, objectMapperBuilder);
+    }
+}
@@ -0,0 +1,236 @@
+package dev.folomkin.sandbox.controller;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import dev.folomkin.sandbox.ProductStoreProperties;
+import dev.folomkin.sandbox.controller.ProductsRestController.NewProductPayloadV1;
+import dev.folomkin.sandbox.controller.ProductsRestController.ProductV1Presentation;
+import dev.folomkin.sandbox.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Пакетная загрузка товаров из NDJSON: одна строка - один {@link NewProductPayloadV1}.
+ * Строки читаются пачками, товары пачки уходят в журнал одной группой.
+ * Пока пачка пишется, читается следующая; перед чтением третьей ответ по первой
+ * выводится в поток, так что в памяти не больше двух пачек при любом размере тела.
+ * Ошибка в строке не прерывает загрузку, она попадает в результат этой строки.
+ * Строка длиннее {@code importMaxLineSize} в память не читается: её хвост пропускается, а строка отклоняется.
+ */
+@Component
+public class ProductBulkImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductBulkImporter.class);
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record ProductImportResultV1(long line, int status, ProductV1Presentation product, String error) {
+    }
+
+    private final ProductRepository productRepository;
+    private final ObjectReader reader;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final DataSize maxLineSize;
+
+    public ProductBulkImporter(ProductRepository productRepository, ObjectMapper objectMapper,
+                               ProductStoreProperties properties) {
+        this.productRepository = productRepository;
+        this.reader = objectMapper.readerFor(NewProductPayloadV1.class);
+        this.objectMapper = objectMapper;
+        this.batchSize = properties.importBatchSize();
+        this.maxLineSize = properties.importMaxLineSize();
+    }
+
+    public void importProducts(InputStream body, OutputStream output) throws IOException {
+        long start = System.nanoTime();
+        long created = 0;
+        long rejected = 0;
+        LineReader lines = new LineReader(body, (int) Math.min(maxLineSize.toBytes(), Integer.MAX_VALUE - 8));
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.setRootValueSeparator(null);
+            List<CompletableFuture<ProductImportResultV1>> inFlight = List.of();
+            List<CompletableFuture<ProductImportResultV1>> batch = new ArrayList<>(batchSize);
+            long number = 0;
+            while (lines.next()) {
+                number++;
+                if (lines.isTooLong()) {
+                    batch.add(CompletableFuture.completedFuture(
+                            new ProductImportResultV1(number, 400, null, "line exceeds " + maxLineSize)));
+                } else if (lines.isBlank()) {
+                    continue;
+                } else {
+                    batch.add(importLine(number, lines.line()));
+                }
+                if (batch.size() == batchSize) {
+                    long[] counts = write(generator, inFlight);
+                    created += counts[0];
+                    rejected += counts[1];
+                    inFlight = batch;
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            for (List<CompletableFuture<ProductImportResultV1>> rest : List.of(inFlight, batch)) {
+                long[] counts = write(generator, rest);
+                created += counts[0];
+                rejected += counts[1];
+            }
+        }
+        log.info("Imported {} products ({} rejected) in {} ms", created, rejected,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Та же загрузка для WebFlux: строки приходят по мере чтения тела, в журнале
+     * одновременно не больше пачки. Следующие строки запрашиваются, только когда
+     * клиент забрал результаты, так что медленный клиент притормаживает и чтение тела.
+     */
+    public Flux<ProductImportResultV1> importProducts(Flux<String> lines) {
+        return lines.index()
+                .filter(line -> !line.getT2().isBlank())
+                .flatMapSequential(line -> Mono.fromFuture(() -> importLine(line.getT1() + 1, line.getT2())),
+                        batchSize)
+                // результаты кодируются не на потоке журнала
+                .publishOn(Schedulers.parallel());
+    }
+
+    /**
+     * Разбирает строку и ставит товар в журнал. Будущее завершается после записи,
+     * отклонённая строка даёт сразу завершённое будущее со статусом 400.
+     */
+    public CompletableFuture<ProductImportResultV1> importLine(long line, String json) {
+        NewProductPayloadV1 payload;
+        try {
+            payload = reader.readValue(json);
+        } catch (JacksonException e) {
+            return CompletableFuture.completedFuture(new ProductImportResultV1(line, 400, null, e.getOriginalMessage()));
+        }
+        if (payload == null || payload.title() == null) {
+            return CompletableFuture.completedFuture(new ProductImportResultV1(line, 400, null, "title is required"));
+        }
+        return productRepository.createAsync(payload.title(), payload.details())
+                .thenApply(product -> new ProductImportResultV1(line, 201, ProductsRestController.present(product), null));
+    }
+
+    // Ждёт записи пачки и выводит результаты строк по порядку
+    private long[] write(JsonGenerator generator, List<CompletableFuture<ProductImportResultV1>> batch)
+            throws IOException {
+        long[] counts = new long[2];
+        for (CompletableFuture<ProductImportResultV1> pending : batch) {
+            ProductImportResultV1 result = join(pending);
+            counts[result.status() == 201 ? 0 : 1]++;
+            generator.writeObject(result);
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+        return counts;
+    }
+
+    /**
+     * Читает тело по строкам, как BufferedReader.readLine, но держит в памяти не больше
+     * {@code maxLength} байт строки. '\n' в UTF-8 не встречается внутри символа, поэтому строки
+     * режутся по байтам и декодируются целиком.
+     */
+    private static final class LineReader {
+
+        private final InputStream input;
+        private final int maxLength;
+        private final byte[] buffer = new byte[1 << 16];
+        private int position;
+        private int limit;
+        private byte[] line = new byte[256];
+        private int length;
+        private boolean tooLong;
+
+        LineReader(InputStream input, int maxLength) {
+            this.input = input;
+            this.maxLength = maxLength;
+        }
+
+        // false - тело кончилось
+        boolean next() throws IOException {
+            length = 0;
+            tooLong = false;
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    limit = Math.max(input.read(buffer), 0);
+                    position = 0;
+                    if (limit == 0) {
+                        return read;
+                    }
+                }
+                read = true;
+                int end = position;
+                while (end < limit && buffer[end] != '\n') {
+                    end++;
+                }
+                append(position, end);
+                if (end < limit) {
+                    position = end + 1;
+                    return true;
+                }
+                position = end;
+            }
+        }
+
+        boolean isTooLong() {
+            return tooLong;
+        }
+
+        boolean isBlank() {
+            for (int i = 0; i < length; i++) {
+                if (!Character.isWhitespace(line[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String line() {
+            int end = length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+            return new String(line, 0, end, StandardCharsets.UTF_8);
+        }
+
+        private void append(int from, int to) {
+            int count = to - from;
+            if (tooLong || length + count > maxLength) {
+                tooLong = true;
+                return;
+            }
+            if (length + count > line.length) {
+                line = Arrays.copyOf(line, Math.min(Math.max(line.length * 2, length + count), maxLength));
+            }
+            System.arraycopy(buffer, from, line, length, count);
+            length += count;
+        }
+    }
+
+    private static ProductImportResultV1 join(CompletableFuture<ProductImportResultV1> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
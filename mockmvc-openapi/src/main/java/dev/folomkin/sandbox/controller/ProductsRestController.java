@@ -1,51 +1,206 @@
 package dev.folomkin.sandbox.controller;
 
 
+import dev.folomkin.jacksonformats.JacksonFormat;
+import dev.folomkin.jsoncodegen.GenerateJsonCodec;
+import dev.folomkin.sandbox.repository.Product;
+import dev.folomkin.sandbox.repository.ProductChange;
+import dev.folomkin.sandbox.repository.ProductRepository;
+import dev.folomkin.sandbox.repository.ReactiveProductRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
 
+import java.io.InputStream;
+
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/catalogue/products")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class ProductsRestController {
 
+    @GenerateJsonCodec
     public record ProductV1Presentation(String id, String title, String details) {
     }
 
+    @GenerateJsonCodec
     public record NewProductPayloadV1(String title, String details) {
     }
 
+    @GenerateJsonCodec
+    public record ProductChangeV1(long sequence, ProductV1Presentation product) {
+    }
+
+    // next - номер для следующего запроса since, hasMore - изменения после next уже есть,
+    // epoch - эпоха номеров, её потребитель присылает вместе с since
+    @GenerateJsonCodec
+    public record ProductChangesV1(List<ProductChangeV1> changes, long next, boolean hasMore, String epoch) {
+    }
+
+    /**
+     * Место потребителя в ленте: номер и эпоха, в которой он выдан (null - эпоху не прислали).
+     * Номер из другой эпохи или больше последнего - номера начались заново, ответ 410.
+     */
+    record ChangesCursor(long since, String epoch) {
+
+        boolean isGone(String currentEpoch, long lastSequence) {
+            return (epoch != null && !epoch.equals(currentEpoch)) || since > lastSequence;
+        }
+    }
+
+    public static final String NEW_PRODUCTS_NDJSON = "application/vnd.eselpo.catalogue.new-product-payload.v1+x-ndjson";
+    public static final String IMPORT_RESULTS_NDJSON = "application/vnd.eselpo.catalogue.product-import-results.v1+x-ndjson";
+    static final String PRODUCTS_JSON = "application/vnd.eselpo.catalogue.products.v1+json";
+    static final String PRODUCT_JSON = "application/vnd.eselpo.catalogue.product.v1+json";
+    static final String PRODUCT_CHANGES_JSON = "application/vnd.eselpo.catalogue.product-changes.v1+json";
+    static final String LAST_EVENT_ID = "Last-Event-ID";
+    static final int MAX_CHANGES = 1000;
+    // комментарий SSE раз в HEARTBEAT: прокси не рвут соединение, а оборванное замечается на записи
+    static final Duration HEARTBEAT = Duration.ofSeconds(15);
+
+    private final ProductRepository productRepository;
+    private final ReactiveProductRepository reactiveProductRepository;
+    private final ProductBulkImporter productBulkImporter;
+
+    public ProductsRestController(ProductRepository productRepository,
+                                  ReactiveProductRepository reactiveProductRepository,
+                                  ProductBulkImporter productBulkImporter) {
+        this.productRepository = productRepository;
+        this.reactiveProductRepository = reactiveProductRepository;
+        this.productBulkImporter = productBulkImporter;
+    }
+
+    // Кодировка (JSON, CBOR, Smile) выбирается по Accept, версия представления от неё не зависит
     @GetMapping
-    public ResponseEntity<List<ProductV1Presentation>> getProducts() {
+    public ResponseEntity<List<ProductV1Presentation>> getProducts(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return ResponseEntity.ok()
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(JacksonFormat.negotiate(accept).of(PRODUCTS_JSON))
+                .body(productRepository.findAll().stream().map(ProductsRestController::present).toList());
+    }
+
+    // Изменения после since: потребитель хранит next и epoch и при опросе получает только новое
+    @GetMapping("/changes")
+    public ResponseEntity<ProductChangesV1> getChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(required = false) String epoch,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (limit != null && limit < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        String currentEpoch = productRepository.epoch();
+        if (new ChangesCursor(since, epoch).isGone(currentEpoch, productRepository.lastSequence())) {
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+        int size = limit == null ? MAX_CHANGES : Math.min(limit, MAX_CHANGES);
         return ResponseEntity.ok()
-                .contentType(MediaType.valueOf("application/vnd.eselpo.catalogue.products.v1+json"))
-                .body(List.of(
-                        new ProductV1Presentation("a396a088-172c-11ee-aa6f-4f6009552211",
-                                "Молоко, 3,2%, 1 литр",
-                                "Молоко с жирностью 3,2% в упаковке 1 литр"),
-                        new ProductV1Presentation("a396a088-172c-11ee-aa6f-4f6009552212",
-                                "Кефир, 3,2%, 0,5 литра",
-                                "Кефир с жирностью 3,2% в упаковке 0,5 литра")
-                ));
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(JacksonFormat.negotiate(accept).of(PRODUCT_CHANGES_JSON))
+                .body(presentChanges(productRepository.findChanges(since, size + 1), since, size, currentEpoch));
+    }
+
+    // Те же изменения потоком SSE; id события - эпоха:номер, переподключение продолжает с Last-Event-ID
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<ProductChangeV1>>> streamChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(required = false) String epoch,
+            @RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId) {
+        ChangesCursor cursor = cursor(since, epoch, lastEventId);
+        if (cursor == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        String currentEpoch = productRepository.epoch();
+        if (cursor.isGone(currentEpoch, productRepository.lastSequence())) {
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+        return ResponseEntity.ok().body(events(reactiveProductRepository.changes(cursor.since()), currentEpoch));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ProductV1Presentation> getProduct(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return productRepository.findById(id)
+                .map(product -> ResponseEntity.ok()
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .contentType(JacksonFormat.negotiate(accept).of(PRODUCT_JSON))
+                        .body(present(product)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @PostMapping
     public ResponseEntity<ProductV1Presentation> createProduct(
             @RequestBody NewProductPayloadV1 payload,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
             UriComponentsBuilder uriComponentsBuilder) {
         if (payload.title == null) {
             return ResponseEntity.badRequest().build();
         }
 
-        var id = UUID.randomUUID();
-        return ResponseEntity.created(uriComponentsBuilder.pathSegment(id.toString())
+        var product = productRepository.create(payload.title, payload.details);
+        return ResponseEntity.created(uriComponentsBuilder
+                        .pathSegment("api", "catalogue", "products", product.id().toString())
                         .build(Map.of()))
-                .contentType(MediaType.valueOf("application/vnd.eselpo.catalogue.product.v1+json"))
-                .body(new ProductV1Presentation(id.toString(), payload.title, payload.details));
+                .contentType(JacksonFormat.negotiate(accept).of(PRODUCT_JSON))
+                .body(present(product));
+    }
+
+    // Результаты по строкам уходят клиенту по мере записи пачек
+    @PostMapping(consumes = NEW_PRODUCTS_NDJSON)
+    public ResponseEntity<StreamingResponseBody> importProducts(InputStream body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.valueOf(IMPORT_RESULTS_NDJSON))
+                .body(output -> productBulkImporter.importProducts(body, output));
+    }
+
+    static ProductChangesV1 presentChanges(List<ProductChange> changes, long since, int limit, String epoch) {
+        List<ProductChangeV1> page = changes.stream().limit(limit)
+                .map(change -> new ProductChangeV1(change.sequence(), present(change.product())))
+                .toList();
+        long next = page.isEmpty() ? since : page.get(page.size() - 1).sequence();
+        return new ProductChangesV1(page, next, changes.size() > limit, epoch);
+    }
+
+    // Last-Event-ID - "эпоха:номер" из id события или просто номер; null - не разобрать
+    static ChangesCursor cursor(long since, String epoch, String lastEventId) {
+        if (lastEventId == null) {
+            return new ChangesCursor(since, epoch);
+        }
+        int colon = lastEventId.indexOf(':');
+        try {
+            long sequence = Long.parseLong(lastEventId.substring(colon + 1));
+            return sequence < 0 ? null
+                    : new ChangesCursor(sequence, colon < 0 ? null : lastEventId.substring(0, colon));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static Flux<ServerSentEvent<ProductChangeV1>> events(Flux<ProductChange> changes, String epoch) {
+        return Flux.merge(
+                changes.map(change -> ServerSentEvent.builder(
+                                new ProductChangeV1(change.sequence(), present(change.product())))
+                        .id(epoch + ":" + change.sequence())
+                        .build()),
+                Flux.interval(HEARTBEAT).map(tick -> ServerSentEvent.<ProductChangeV1>builder()
+                        .comment("heartbeat")
+                        .build()));
+    }
+
+    static ProductV1Presentation present(Product product) {
+        return new ProductV1Presentation(product.id().toString(), product.title(), product.details());
     }
 }
\ No newline at end of file
@@ -0,0 +1,126 @@
+package dev.folomkin.sandbox.controller;
+
+import dev.folomkin.jacksonformats.JacksonFormat;
+import dev.folomkin.sandbox.controller.ProductBulkImporter.ProductImportResultV1;
+import dev.folomkin.sandbox.controller.ProductsRestController.NewProductPayloadV1;
+import dev.folomkin.sandbox.controller.ProductsRestController.ProductChangeV1;
+import dev.folomkin.sandbox.controller.ProductsRestController.ProductChangesV1;
+import dev.folomkin.sandbox.controller.ProductsRestController.ProductV1Presentation;
+import dev.folomkin.sandbox.repository.ReactiveProductRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static dev.folomkin.sandbox.controller.ProductsRestController.*;
+
+/**
+ * {@link ProductsRestController} для WebFlux ({@code spring.main.web-application-type=reactive})
+ * с теми же путями и типами содержимого. Ожидание журнала не занимает поток:
+ * ответ на создание и строки результатов загрузки пишутся, когда запись сброшена на диск.
+ */
+@RestController
+@RequestMapping("/api/catalogue/products")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveProductsRestController {
+
+    private final ReactiveProductRepository productRepository;
+    private final ProductBulkImporter productBulkImporter;
+
+    public ReactiveProductsRestController(ReactiveProductRepository productRepository,
+                                          ProductBulkImporter productBulkImporter) {
+        this.productRepository = productRepository;
+        this.productBulkImporter = productBulkImporter;
+    }
+
+    // JSON-массив пишется по элементам, CBOR и Smile - одним документом (DocumentEncoder)
+    @GetMapping
+    public ResponseEntity<Flux<ProductV1Presentation>> getProducts(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return ResponseEntity.ok()
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(JacksonFormat.negotiate(accept).of(PRODUCTS_JSON))
+                .body(productRepository.findAll().map(ProductsRestController::present));
+    }
+
+    @GetMapping("/changes")
+    public Mono<ResponseEntity<ProductChangesV1>> getChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(required = false) String epoch,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (limit != null && limit < 1) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        String currentEpoch = productRepository.epoch();
+        if (new ChangesCursor(since, epoch).isGone(currentEpoch, productRepository.lastSequence())) {
+            return Mono.just(ResponseEntity.status(HttpStatus.GONE).build());
+        }
+        int size = limit == null ? MAX_CHANGES : Math.min(limit, MAX_CHANGES);
+        return productRepository.findChanges(since, size + 1)
+                .map(changes -> ResponseEntity.ok()
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .contentType(JacksonFormat.negotiate(accept).of(PRODUCT_CHANGES_JSON))
+                        .body(presentChanges(changes, since, size, currentEpoch)));
+    }
+
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<ProductChangeV1>>> streamChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(required = false) String epoch,
+            @RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId) {
+        ChangesCursor cursor = cursor(since, epoch, lastEventId);
+        if (cursor == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        String currentEpoch = productRepository.epoch();
+        if (cursor.isGone(currentEpoch, productRepository.lastSequence())) {
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+        return ResponseEntity.ok().body(events(productRepository.changes(cursor.since()), currentEpoch));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<ProductV1Presentation>> getProduct(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return productRepository.findById(id)
+                .map(product -> ResponseEntity.ok()
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .contentType(JacksonFormat.negotiate(accept).of(PRODUCT_JSON))
+                        .body(present(product)))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<ProductV1Presentation>> createProduct(
+            @RequestBody NewProductPayloadV1 payload,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            UriComponentsBuilder uriComponentsBuilder) {
+        if (payload.title() == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        return productRepository.create(payload.title(), payload.details())
+                .map(product -> ResponseEntity.created(uriComponentsBuilder
+                                .pathSegment("api", "catalogue", "products", product.id().toString())
+                                .build(Map.of()))
+                        .contentType(JacksonFormat.negotiate(accept).of(PRODUCT_JSON))
+                        .body(present(product)));
+    }
+
+    // Строки тела приходят по мере чтения, результаты уходят по одной строке со сбросом
+    @PostMapping(consumes = NEW_PRODUCTS_NDJSON, produces = IMPORT_RESULTS_NDJSON)
+    public Flux<ProductImportResultV1> importProducts(@RequestBody Flux<String> lines) {
+        return productBulkImporter.importProducts(lines);
+    }
+}
@@ -0,0 +1,27 @@
+package dev.folomkin.sandbox.id;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.IdGenerator;
+import org.springframework.util.JdkIdGenerator;
+
+/**
+ * Генератор идентификаторов новых сущностей, {@code catalogue.id-generator}:
+ * {@code time-ordered} (по умолчанию) - UUIDv7, {@code random} - {@link java.util.UUID#randomUUID()}.
+ */
+@Configuration(proxyBeanMethods = false)
+public class IdGeneratorConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "catalogue.id-generator", havingValue = "time-ordered", matchIfMissing = true)
+    public IdGenerator timeOrderedIdGenerator() {
+        return new TimeOrderedIdGenerator();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "catalogue.id-generator", havingValue = "random")
+    public IdGenerator randomIdGenerator() {
+        return new JdkIdGenerator();
+    }
+}
@@ -0,0 +1,56 @@
+package dev.folomkin.sandbox.id;
+
+import org.springframework.util.IdGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * UUID версии 7 (RFC 9562): 48 бит миллисекунд Unix-времени, 12 бит счётчика,
+ * 62 случайных бита. Состояние у каждого потока своё, блокировок и общего
+ * SecureRandom нет. В пределах потока идентификаторы строго возрастают:
+ * счётчик стартует со случайного значения в каждой новой миллисекунде,
+ * а при переполнении время сдвигается на миллисекунду вперёд.
+ * Идентификаторы разных потоков различаются случайной частью.
+ */
+public class TimeOrderedIdGenerator implements IdGenerator {
+
+    private static final int COUNTER_BITS = 12;
+    private static final int COUNTER_MASK = (1 << COUNTER_BITS) - 1;
+
+    private static final class State {
+        long millis = -1;
+        int counter;
+    }
+
+    private final LongSupplier clock;
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    public TimeOrderedIdGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    TimeOrderedIdGenerator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public UUID generateId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        State current = state.get();
+        long now = clock.getAsLong();
+        if (now > current.millis) {
+            current.millis = now;
+            // старший бит счётчика обнулён: в миллисекунде остаётся запас не меньше 2048 значений
+            current.counter = random.nextInt(1 << (COUNTER_BITS - 1));
+        } else if (++current.counter > COUNTER_MASK) {
+            // часы отстали или счётчик исчерпан: занимаем следующую миллисекунду
+            current.millis++;
+            current.counter = 0;
+        }
+        long msb = (current.millis & 0xFFFF_FFFF_FFFFL) << 16 | 0x7000L | current.counter;
+        long lsb = random.nextLong() & 0x3FFF_FFFF_FFFF_FFFFL | 0x8000_0000_0000_0000L;
+        return new UUID(msb, lsb);
+    }
+}
@@ -0,0 +1,6 @@
+package dev.folomkin.sandbox.repository;
+
+import java.util.UUID;
+
+public record Product(UUID id, String title, String details) {
+}
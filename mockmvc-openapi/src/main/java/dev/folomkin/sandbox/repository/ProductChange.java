@@ -0,0 +1,7 @@
+package dev.folomkin.sandbox.repository;
+
+/**
+ * Изменение каталога под номером записи в журнале; номера растут и переживают перезапуск.
+ */
+public record ProductChange(long sequence, Product product) {
+}
@@ -0,0 +1,340 @@
+package dev.folomkin.sandbox.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал товаров только на дозапись.
+ * <pre>
+ * запись: int длина | int CRC32C | long номер | byte тип | UUID | строка title | строка details
+ * </pre>
+ * Все записи делает один поток: он забирает из очереди всё, что накопилось,
+ * пишет одним вызовом и делает один fsync на всю группу (group commit).
+ * Вызывающий получает future, который завершается, когда запись на диске.
+ * Поток не прерывается: прерывание закрыло бы {@link FileChannel} посреди записи,
+ * поэтому {@link #close()} ставит в очередь метку {@code CLOSE} и ждёт, пока всё перед ней запишется.
+ * <p>
+ * Рядом с журналом в {@code <журнал>.epoch} лежит эпоха - случайный идентификатор журнала.
+ * Новый пустой журнал получает новую эпоху: номера в нём начинаются заново.
+ */
+final class ProductLog implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductLog.class);
+
+    static final byte CREATED = 1;
+    private static final int HEADER_SIZE = 4 + 4;
+    private static final int MAX_GROUP = 4096;
+    private static final int MAX_PAYLOAD = 1 << 24;
+
+    record Entry(long sequence, Product product) {
+    }
+
+    private record Pending(Product product, CompletableFuture<Entry> result) {
+    }
+
+    private static final Pending CLOSE = new Pending(null, null);
+
+    private final Path file;
+    private final String epoch;
+    private final FileChannel channel;
+    private final Consumer<Entry> onDurable;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private long sequence;
+    private volatile boolean closed;
+
+    private ProductLog(Path file, String epoch, FileChannel channel, long sequence, Consumer<Entry> onDurable) {
+        this.file = file;
+        this.epoch = epoch;
+        this.channel = channel;
+        this.sequence = sequence;
+        this.onDurable = onDurable;
+        this.writer = new Thread(this::writeLoop, "product-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Проигрывает журнал в replay и открывает его на дозапись.
+     * Оборванная или битая запись в хвосте (сбой посреди записи) отрезается.
+     * Битая запись, за которой в файле есть что-то кроме нулей, - это порча, а не сбой записи:
+     * отрезать её вместе со всеми записями после неё нельзя, поэтому открытие падает.
+     */
+    static ProductLog open(Path file, Consumer<Entry> replay, Consumer<Entry> onDurable) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        long sequence = 0;
+        long valid = 0;
+        if (Files.exists(file)) {
+            try (InputStream stream = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+                DataInputStream input = new DataInputStream(stream);
+                while (true) {
+                    Entry entry = read(input);
+                    if (entry == null) {
+                        break;
+                    }
+                    replay.accept(entry);
+                    sequence = entry.sequence();
+                    valid += HEADER_SIZE + payloadSize(entry.product());
+                }
+            }
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (channel.size() > valid && !isTail(file, valid, channel.size())) {
+            channel.close();
+            throw new IOException("Corrupt record at offset " + valid + " of " + file
+                    + " is followed by more data, refusing to truncate");
+        }
+        if (channel.size() > valid) {
+            log.warn("Truncating {} torn bytes at the end of {}", channel.size() - valid, file);
+            channel.truncate(valid);
+            channel.force(true);
+        }
+        channel.position(valid);
+        try {
+            return new ProductLog(file, epoch(file, valid == 0), channel, sequence, onDurable);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Эпоха пишется до первой записи журнала: сбой между ними оставит пустой журнал и новую эпоху
+    private static String epoch(Path file, boolean empty) throws IOException {
+        Path epochFile = file.resolveSibling(file.getFileName() + ".epoch");
+        if (!empty && Files.exists(epochFile)) {
+            return Files.readString(epochFile, StandardCharsets.US_ASCII).strip();
+        }
+        String epoch = newEpoch();
+        Path temp = file.resolveSibling(file.getFileName() + ".epoch.tmp");
+        Files.writeString(temp, epoch, StandardCharsets.US_ASCII);
+        Files.move(temp, epochFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return epoch;
+    }
+
+    static String newEpoch() {
+        return HexFormat.of().toHexDigits(new SecureRandom().nextLong());
+    }
+
+    String epoch() {
+        return epoch;
+    }
+
+    // Запись с offset - последнее в файле: она обрывается на конце файла или дальше одни нули
+    private static boolean isTail(Path file, long offset, long size) throws IOException {
+        if (size - offset < 4) {
+            return true;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            readFully(channel, buffer.limit(4), offset);
+            int length = buffer.getInt(0);
+            if (length >= 0 && length <= MAX_PAYLOAD && offset + HEADER_SIZE + length >= size) {
+                return true;
+            }
+            for (long position = offset; position < size; position += buffer.limit()) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), size - position));
+                readFully(channel, buffer, position);
+                for (int i = 0; i < buffer.limit(); i++) {
+                    if (buffer.get(i) != 0) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static Entry read(DataInputStream input) throws IOException {
+        int length;
+        try {
+            length = input.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 0 || length > MAX_PAYLOAD) {
+            return null;
+        }
+        int checksum;
+        byte[] payload = new byte[length];
+        try {
+            checksum = input.readInt();
+            input.readFully(payload);
+        } catch (EOFException e) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        long sequence = buffer.getLong();
+        if (buffer.get() != CREATED) {
+            return null;
+        }
+        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+        return new Entry(sequence, new Product(id, readString(buffer), readString(buffer)));
+    }
+
+    CompletableFuture<Entry> append(Product product) {
+        CompletableFuture<Entry> result = new CompletableFuture<>();
+        if (closed) {
+            result.completeExceptionally(new IllegalStateException("Product log " + file + " is closed"));
+            return result;
+        }
+        Pending pending = new Pending(product, result);
+        queue.add(pending);
+        // close() мог пройти целиком между проверкой и add: писатель и failPending это уже не увидят.
+        // Кто первым вынет запись из очереди - мы, писатель или failPending, - тот и завершит будущее
+        if (closed && queue.remove(pending)) {
+            result.completeExceptionally(new IllegalStateException("Product log " + file + " is closed"));
+        }
+        return result;
+    }
+
+    private void writeLoop() {
+        List<Pending> group = new ArrayList<>();
+        boolean stop = false;
+        while (!stop) {
+            try {
+                Pending first = queue.take();
+                group.add(first);
+                queue.drainTo(group, MAX_GROUP - 1);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            // попавшие в группу после CLOSE уже приняты append-ом, их тоже пишем
+            stop = group.remove(CLOSE);
+            if (group.isEmpty()) {
+                continue;
+            }
+            List<Entry> entries = new ArrayList<>(group.size());
+            try {
+                ByteBuffer[] buffers = new ByteBuffer[group.size()];
+                for (int i = 0; i < buffers.length; i++) {
+                    Entry entry = new Entry(sequence + i + 1, group.get(i).product());
+                    entries.add(entry);
+                    buffers[i] = encode(entry);
+                }
+                long remaining = 0;
+                for (ByteBuffer buffer : buffers) {
+                    remaining += buffer.remaining();
+                }
+                while (remaining > 0) {
+                    remaining -= channel.write(buffers);
+                }
+                channel.force(false);
+                sequence += buffers.length;
+            } catch (IOException | RuntimeException e) {
+                // после сбоя записи хвост файла не определён: дальнейшие записи отклоняются
+                log.error("Failed to write {} products to {}", group.size(), file, e);
+                closed = true;
+                group.forEach(pending -> pending.result().completeExceptionally(e));
+                group.clear();
+                failPending(e);
+                return;
+            }
+            for (int i = 0; i < entries.size(); i++) {
+                onDurable.accept(entries.get(i));
+                group.get(i).result().complete(entries.get(i));
+            }
+            group.clear();
+        }
+    }
+
+    private void failPending(Exception cause) {
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.remove(CLOSE);
+        rest.forEach(pending -> pending.result().completeExceptionally(cause));
+    }
+
+    private static int payloadSize(Product product) {
+        return 8 + 1 + 16 + stringSize(product.title()) + stringSize(product.details());
+    }
+
+    private static ByteBuffer encode(Entry entry) {
+        Product product = entry.product();
+        int size = payloadSize(product);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + size);
+        buffer.putInt(size).putInt(0)
+                .putLong(entry.sequence())
+                .put(CREATED)
+                .putLong(product.id().getMostSignificantBits())
+                .putLong(product.id().getLeastSignificantBits());
+        writeString(buffer, product.title());
+        writeString(buffer, product.details());
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), HEADER_SIZE, size);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer.flip();
+    }
+
+    private static int stringSize(String value) {
+        return 4 + (value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static void writeString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        queue.add(CLOSE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failPending(new IllegalStateException("Product log " + file + " is closed"));
+        channel.close();
+    }
+}
@@ -0,0 +1,167 @@
+package dev.folomkin.sandbox.repository;
+
+import dev.folomkin.sandbox.ProductStoreProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.IdGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Товары каталога в памяти с записью через журнал {@link ProductLog}.
+ * Товар становится видим только после того, как его запись сброшена на диск;
+ * при старте журнал проигрывается заново. Номер записи в журнале служит номером
+ * изменения: по нему подписчики забирают только новое ({@link #findChanges}).
+ * Номера имеют смысл только в своей эпохе ({@link #epoch()}): без журнала она своя
+ * у каждого экземпляра, с журналом - у каждого нового файла журнала.
+ */
+@Repository
+public class ProductRepository implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductRepository.class);
+
+    static final List<Product> SEED = List.of(
+            new Product(UUID.fromString("a396a088-172c-11ee-aa6f-4f6009552211"),
+                    "Молоко, 3,2%, 1 литр",
+                    "Молоко с жирностью 3,2% в упаковке 1 литр"),
+            new Product(UUID.fromString("a396a088-172c-11ee-aa6f-4f6009552212"),
+                    "Кефир, 3,2%, 0,5 литра",
+                    "Кефир с жирностью 3,2% в упаковке 0,5 литра"));
+
+    private final Map<UUID, Product> products = new ConcurrentHashMap<>();
+    // порядок добавления по номеру записи в журнале
+    private final ConcurrentSkipListMap<Long, Product> sequence = new ConcurrentSkipListMap<>();
+    private final ProductLog productLog;
+    private final IdGenerator idGenerator;
+    private final String epoch;
+    private final AtomicLong memorySequence = new AtomicLong();
+    // все изменения с номерами до lastSequence уже лежат в sequence
+    private volatile long lastSequence;
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    public ProductRepository(ProductStoreProperties properties, IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+        if (properties.log() == null) {
+            this.productLog = null;
+            this.epoch = ProductLog.newEpoch();
+        } else {
+            try {
+                this.productLog = ProductLog.open(properties.log(), this::apply, this::apply);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open product log " + properties.log(), e);
+            }
+            this.epoch = productLog.epoch();
+            log.info("Replayed {} products from {}", products.size(), properties.log());
+        }
+        if (products.isEmpty()) {
+            SEED.forEach(product -> append(product).join());
+        }
+    }
+
+    // Вызывается по порядку номеров: поток журнала один, запись в память идёт под блокировкой
+    private void apply(ProductLog.Entry entry) {
+        products.put(entry.product().id(), entry.product());
+        sequence.put(entry.sequence(), entry.product());
+        lastSequence = entry.sequence();
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+    }
+
+    public List<Product> findAll() {
+        return List.copyOf(sequence.values());
+    }
+
+    public Optional<Product> findById(UUID id) {
+        return Optional.ofNullable(products.get(id));
+    }
+
+    /**
+     * Случайный идентификатор последовательности номеров: сменился - номера начались заново.
+     */
+    public String epoch() {
+        return epoch;
+    }
+
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * До limit изменений с номером больше since, по возрастанию номера.
+     */
+    public List<ProductChange> findChanges(long since, int limit) {
+        // lastSequence читается до обхода: всё, что до него, в карте уже есть, без пропусков
+        long upTo = lastSequence;
+        List<ProductChange> changes = new ArrayList<>();
+        if (since >= upTo) {
+            return changes;
+        }
+        for (Map.Entry<Long, Product> entry : sequence.subMap(since, false, upTo, true).entrySet()) {
+            if (changes.size() == limit) {
+                break;
+            }
+            changes.add(new ProductChange(entry.getKey(), entry.getValue()));
+        }
+        return changes;
+    }
+
+    /**
+     * listener вызывается после каждого нового изменения на потоке журнала,
+     * поэтому должен только отметить, что есть что забрать.
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Завершается, когда товар записан в журнал; конкурентные вызовы
+     * делят между собой один fsync.
+     */
+    public CompletableFuture<Product> createAsync(String title, String details) {
+        return append(new Product(idGenerator.generateId(), title, details));
+    }
+
+    public Product create(String title, String details) {
+        try {
+            return createAsync(title, details).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw new UncheckedIOException("Failed to write product", io);
+            }
+            throw e;
+        }
+    }
+
+    private CompletableFuture<Product> append(Product product) {
+        if (productLog == null) {
+            synchronized (memorySequence) {
+                apply(new ProductLog.Entry(memorySequence.incrementAndGet(), product));
+            }
+            return CompletableFuture.completedFuture(product);
+        }
+        return productLog.append(product).thenApply(ProductLog.Entry::product);
+    }
+
+    @Override
+    @PreDestroy
+    public void close() throws IOException {
+        if (productLog != null) {
+            productLog.close();
+        }
+    }
+}
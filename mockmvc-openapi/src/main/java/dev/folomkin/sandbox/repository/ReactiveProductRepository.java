@@ -0,0 +1,77 @@
+package dev.folomkin.sandbox.repository;
+
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Неблокирующий доступ к {@link ProductRepository} для WebFlux.
+ * Чтения идут по картам в памяти, запись не ждёт журнал на потоке event loop:
+ * Mono завершается, когда поток журнала сбросил пачку на диск.
+ */
+@Repository
+public class ReactiveProductRepository {
+
+    private final ProductRepository productRepository;
+    // сигнал "есть новые изменения", сами изменения подписчик забирает по своему номеру
+    private final Sinks.Many<Long> changed = Sinks.many().multicast().directBestEffort();
+
+    public ReactiveProductRepository(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+        productRepository.addChangeListener(() -> changed.tryEmitNext(productRepository.lastSequence()));
+    }
+
+    public Flux<Product> findAll() {
+        return Flux.defer(() -> Flux.fromIterable(productRepository.findAll()));
+    }
+
+    public Mono<Product> findById(UUID id) {
+        return Mono.defer(() -> Mono.justOrEmpty(productRepository.findById(id)));
+    }
+
+    public String epoch() {
+        return productRepository.epoch();
+    }
+
+    public long lastSequence() {
+        return productRepository.lastSequence();
+    }
+
+    public Mono<List<ProductChange>> findChanges(long since, int limit) {
+        return Mono.fromSupplier(() -> productRepository.findChanges(since, limit));
+    }
+
+    /**
+     * Изменения с номером больше since, затем новые по мере записи в журнал; не завершается.
+     * Сигналы, пришедшие, пока подписчик занят, схлопываются в один: отстающий клиент
+     * забирает накопившееся одной выборкой, а поток журнала ничего не ждёт.
+     */
+    public Flux<ProductChange> changes(long since) {
+        return Flux.defer(() -> {
+            AtomicLong cursor = new AtomicLong(since);
+            // сначала подписка на сигналы, потом первая выборка - изменение между ними не потеряется
+            return Flux.merge(changed.asFlux(), Mono.just(since))
+                    .onBackpressureLatest()
+                    .publishOn(Schedulers.parallel(), 1)
+                    .concatMapIterable(signal -> {
+                        List<ProductChange> changes = productRepository.findChanges(cursor.get(), Integer.MAX_VALUE);
+                        if (!changes.isEmpty()) {
+                            cursor.set(changes.get(changes.size() - 1).sequence());
+                        }
+                        return changes;
+                    }, 1);
+        });
+    }
+
+    public Mono<Product> create(String title, String details) {
+        // ответ сериализуется уже не на потоке журнала, чтобы не задерживать следующую пачку
+        return Mono.fromFuture(() -> productRepository.createAsync(title, details))
+                .publishOn(Schedulers.parallel());
+    }
+}
@@ -0,0 +1,182 @@
+package dev.folomkin.sandbox.validation;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.FastByteArrayOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+
+/**
+ * Копит тело ответа для проверки, но не больше {@code limit} байт, как ContentCachingResponseWrapper с лимитом.
+ * Ответ длиннее (по Content-Length или по уже записанному) отдаётся дальше как есть и не проверяется.
+ */
+final class BoundedCachingResponse extends HttpServletResponseWrapper {
+
+    private final long limit;
+    private final FastByteArrayOutputStream content = new FastByteArrayOutputStream(1024);
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+    private Long contentLength;
+    private boolean passThrough;
+
+    BoundedCachingResponse(HttpServletResponse response, long limit) {
+        super(response);
+        this.limit = limit;
+    }
+
+    /**
+     * Тело не поместилось в лимит и уже ушло клиенту: проверять нечего.
+     */
+    boolean isPassThrough() {
+        return passThrough;
+    }
+
+    byte[] getContentAsByteArray() {
+        return content.toByteArray();
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        setContentLengthLong(length);
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+        if (passThrough) {
+            super.setContentLengthLong(length);
+            return;
+        }
+        contentLength = length;
+        if (length > limit) {
+            startPassThrough();
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) && value != null) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) && value != null) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            ServletOutputStream raw = getResponse().getOutputStream();
+            outputStream = new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return raw.isReady();
+                }
+
+                @Override
+                public void setWriteListener(WriteListener listener) {
+                    raw.setWriteListener(listener);
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    target(1).write(b);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    target(length).write(bytes, offset, length);
+                }
+
+                private OutputStream target(int length) throws IOException {
+                    if (!passThrough && content.size() + (long) length > limit) {
+                        startPassThrough();
+                    }
+                    if (!passThrough) {
+                        return content;
+                    }
+                    drain();
+                    return raw;
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), Charset.forName(getCharacterEncoding())));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        // накопленный ответ не коммитим: его ещё можно заменить ошибкой проверки
+        if (passThrough) {
+            drain();
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        content.reset();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        content.reset();
+        contentLength = null;
+    }
+
+    /**
+     * Дописывает накопленное тело в ответ; Content-Length ставится по нему, если приложение его не задало.
+     */
+    void copyBodyToResponse() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        HttpServletResponse raw = (HttpServletResponse) getResponse();
+        if (!passThrough && !raw.isCommitted() && (contentLength != null || content.size() > 0)) {
+            raw.setContentLengthLong(contentLength != null ? contentLength : content.size());
+        }
+        drain();
+        raw.flushBuffer();
+    }
+
+    // Дальше тело пишется напрямую; накопленное уйдёт перед следующей записью
+    private void startPassThrough() {
+        passThrough = true;
+        if (contentLength != null && !getResponse().isCommitted()) {
+            super.setContentLengthLong(contentLength);
+        }
+    }
+
+    private void drain() throws IOException {
+        if (content.size() > 0) {
+            content.writeTo(getResponse().getOutputStream());
+            content.reset();
+        }
+    }
+}
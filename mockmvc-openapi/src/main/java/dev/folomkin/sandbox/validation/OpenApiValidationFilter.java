@@ -0,0 +1,352 @@
+package dev.folomkin.sandbox.validation;
+
+import com.atlassian.oai.validator.OpenApiInteractionValidator;
+import com.atlassian.oai.validator.model.Request;
+import com.atlassian.oai.validator.model.SimpleRequest;
+import com.atlassian.oai.validator.model.SimpleResponse;
+import com.atlassian.oai.validator.report.ValidationReport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+import org.springframework.web.util.WebUtils;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Проверяет живые запросы и ответы по OpenAPI-спецификации.
+ * Спецификация разбирается и компилируется один раз при создании фильтра,
+ * на запрос остаётся только проверка. Потоковые тела (NDJSON, SSE) не проверяются:
+ * их пришлось бы целиком держать в памяти. У бинарных (CBOR, Smile) ответов проверяется только запрос:
+ * валидатор читает только JSON. Тела больше {@code maxBodySize} в память не читаются и не проверяются:
+ * запрос с известной длиной пропускается сразу, chunked-запрос - после прочитанного начала, которое
+ * контроллер получает вместе с остатком тела (в STRICT такой запрос отклоняется с 413), а ответ
+ * дописывается клиенту напрямую. Пропуски копятся в {@link Statistics#skipped()}.
+ * Стоимость проверки отдаётся в заголовке {@code Server-Timing} и копится в {@link #statistics()}.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "catalogue.openapi.validation", name = "enabled", matchIfMissing = true)
+public class OpenApiValidationFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenApiValidationFilter.class);
+
+    public record Statistics(long validated, long skipped, long requestErrors, long responseErrors,
+                             long totalNanos, long maxNanos) {
+
+        public double averageMicros() {
+            return validated == 0 ? 0 : totalNanos / 1e3 / validated;
+        }
+    }
+
+    private static final String PENDING = OpenApiValidationFilter.class.getName() + ".PENDING";
+
+    private record Pending(Request request, long cost) {
+    }
+
+    private final OpenApiInteractionValidator validator;
+    private final OpenApiValidationProperties properties;
+    private final ObjectMapper objectMapper;
+    private final LongAdder validated = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder requestErrors = new LongAdder();
+    private final LongAdder responseErrors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public OpenApiValidationFilter(OpenApiValidationProperties properties, ObjectMapper objectMapper) {
+        long start = System.nanoTime();
+        this.validator = OpenApiInteractionValidator.createFor(properties.spec()).build();
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        log.info("Compiled OpenAPI spec {} in {} ms, mode {}, sample rate {}", properties.spec(),
+                (System.nanoTime() - start) / 1_000_000, properties.mode(), properties.sampleRate());
+    }
+
+    public Statistics statistics() {
+        return new Statistics(validated.sum(), skipped.sum(), requestErrors.sum(), responseErrors.sum(),
+                totalNanos.sum(), maxNanos.get());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (isAsyncDispatch(request)) {
+            return request.getAttribute(PENDING) == null;
+        }
+        if (!request.getRequestURI().startsWith(request.getContextPath() + properties.pathPrefix())
+                || isStreaming(request.getContentType()) || isStreaming(request.getHeader("Accept"))
+                || isBinary(request.getContentType())
+                || request.getContentLengthLong() > properties.maxBodySize().toBytes()) {
+            return true;
+        }
+        double rate = properties.sampleRate();
+        return rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate;
+    }
+
+    private static boolean isStreaming(String mediaType) {
+        if (mediaType == null) {
+            return false;
+        }
+        String value = mediaType.toLowerCase(Locale.ROOT);
+        return value.contains("ndjson") || value.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    private static boolean isBinary(String mediaType) {
+        if (mediaType == null) {
+            return false;
+        }
+        String value = mediaType.toLowerCase(Locale.ROOT);
+        return value.contains("cbor") || value.contains("smile");
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            // ответ асинхронного обработчика дописан, проверяем его здесь
+            chain.doFilter(request, response);
+            Pending pending = (Pending) request.getAttribute(PENDING);
+            if (pending != null && !isAsyncStarted(request)) {
+                request.removeAttribute(PENDING);
+                validateResponse(request, response, pending.request(), pending.cost());
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        long limit = properties.maxBodySize().toBytes();
+        ServletInputStream input = request.getInputStream();
+        byte[] body = input.readNBytes((int) Math.min(limit + 1, Integer.MAX_VALUE - 8));
+        if (body.length > limit) {
+            log.warn("Request {} {} body exceeds {}, not validated", request.getMethod(), request.getRequestURI(),
+                    properties.maxBodySize());
+            if (properties.mode() == OpenApiValidationProperties.Mode.STRICT) {
+                writeProblem(response, HttpStatus.PAYLOAD_TOO_LARGE,
+                        "Request body exceeds " + properties.maxBodySize(), List.of(), System.nanoTime() - start);
+                return;
+            }
+            skipped.increment();
+            chain.doFilter(new CachedBodyRequest(request, body, input), response);
+            return;
+        }
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request, body, null);
+        Request validatedRequest = toValidatorRequest(cachedRequest);
+        ValidationReport requestReport = validator.validateRequest(validatedRequest);
+        long cost = System.nanoTime() - start;
+        if (requestReport.hasErrors()) {
+            requestErrors.increment();
+            log.warn("Request {} {} violates {}: {}", request.getMethod(), request.getRequestURI(),
+                    properties.spec(), messages(requestReport));
+            if (properties.mode() == OpenApiValidationProperties.Mode.STRICT) {
+                record(cost);
+                writeProblem(response, HttpStatus.BAD_REQUEST, "Request violates API contract",
+                        messages(requestReport), cost);
+                return;
+            }
+        }
+
+        BoundedCachingResponse cachedResponse = new BoundedCachingResponse(response, limit);
+        chain.doFilter(cachedRequest, cachedResponse);
+        if (isAsyncStarted(cachedRequest)) {
+            request.setAttribute(PENDING, new Pending(validatedRequest, cost));
+        } else {
+            validateResponse(request, cachedResponse, validatedRequest, cost);
+        }
+    }
+
+    private void validateResponse(HttpServletRequest request, HttpServletResponse response, Request validatedRequest,
+                                  long cost) throws IOException {
+        BoundedCachingResponse cachedResponse = WebUtils.getNativeResponse(response, BoundedCachingResponse.class);
+        if (cachedResponse.isPassThrough() || isBinary(cachedResponse.getContentType())) {
+            // запрос уже проверен, а тело ответа валидатор не прочитает или оно уже ушло клиенту
+            if (cachedResponse.isPassThrough()) {
+                skipped.increment();
+            }
+            record(cost);
+            if (!cachedResponse.isCommitted()) {
+                cachedResponse.addHeader("Server-Timing", serverTiming(cost));
+            }
+            cachedResponse.copyBodyToResponse();
+            return;
+        }
+        long start = System.nanoTime();
+        ValidationReport report = validator.validateResponse(validatedRequest.getPath(),
+                validatedRequest.getMethod(), toValidatorResponse(cachedResponse));
+        cost += System.nanoTime() - start;
+        record(cost);
+        if (report.hasErrors()) {
+            responseErrors.increment();
+            log.warn("Response {} to {} {} violates {}: {}", cachedResponse.getStatus(), request.getMethod(),
+                    request.getRequestURI(), properties.spec(), messages(report));
+        }
+        if (!cachedResponse.isCommitted()) {
+            if (report.hasErrors() && properties.mode() == OpenApiValidationProperties.Mode.STRICT) {
+                cachedResponse.reset();
+                writeProblem(cachedResponse, HttpStatus.INTERNAL_SERVER_ERROR, "Response violates API contract",
+                        messages(report), cost);
+            } else {
+                cachedResponse.addHeader("Server-Timing", serverTiming(cost));
+            }
+        }
+        cachedResponse.copyBodyToResponse();
+    }
+
+    private void record(long cost) {
+        validated.increment();
+        totalNanos.add(cost);
+        maxNanos.accumulate(cost);
+    }
+
+    private static String serverTiming(long nanos) {
+        return String.format(Locale.ROOT, "openapi-validation;dur=%.3f", nanos / 1e6);
+    }
+
+    private static List<String> messages(ValidationReport report) {
+        return report.getMessages().stream()
+                .filter(message -> message.getLevel() == ValidationReport.Level.ERROR)
+                .map(ValidationReport.Message::getMessage)
+                .toList();
+    }
+
+    private void writeProblem(HttpServletResponse response, HttpStatus status, String detail,
+                              List<String> errors, long cost) throws IOException {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(status, detail);
+        problem.setProperty("errors", errors);
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        response.addHeader("Server-Timing", serverTiming(cost));
+        objectMapper.writeValue(response.getOutputStream(), problem);
+    }
+
+    private static Request toValidatorRequest(CachedBodyRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        SimpleRequest.Builder builder = new SimpleRequest.Builder(request.getMethod(), path);
+        for (String name : Collections.list(request.getHeaderNames())) {
+            builder.withHeader(name, Collections.list(request.getHeaders(name)));
+        }
+        if (request.getQueryString() != null) {
+            UriComponentsBuilder.newInstance().query(request.getQueryString()).build().getQueryParams()
+                    .forEach((name, values) -> builder.withQueryParam(UriUtils.decode(name, StandardCharsets.UTF_8),
+                            values.stream().map(value -> value == null ? "" : UriUtils.decode(value,
+                                    StandardCharsets.UTF_8)).toList()));
+        }
+        if (request.body.length > 0) {
+            builder.withBody(request.body);
+        }
+        return builder.build();
+    }
+
+    private static SimpleResponse toValidatorResponse(BoundedCachingResponse response) {
+        SimpleResponse.Builder builder = new SimpleResponse.Builder(response.getStatus());
+        for (String name : response.getHeaderNames()) {
+            builder.withHeader(name, List.copyOf(response.getHeaders(name)));
+        }
+        byte[] body = response.getContentAsByteArray();
+        if (body.length > 0) {
+            builder.withBody(body);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Тело запроса, прочитанное заранее: его видят и проверка, и контроллер.
+     * Если прочитано только начало тела ({@code rest} не null), за ним идёт остаток исходного потока.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+        private final ServletInputStream rest;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body, ServletInputStream rest) {
+            super(request);
+            this.body = body;
+            this.rest = rest;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream prefix = new ByteArrayInputStream(body);
+            InputStream input = rest == null ? prefix : new SequenceInputStream(prefix, rest);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return prefix.available() == 0 && (rest == null || rest.isFinished());
+                }
+
+                @Override
+                public boolean isReady() {
+                    return prefix.available() > 0 || rest == null || rest.isReady();
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    if (rest != null && !rest.isFinished()) {
+                        // остаток ещё в сети: о нём сообщает контейнер, а начало читается первым
+                        rest.setReadListener(listener);
+                        return;
+                    }
+                    // тело уже в памяти: всё доступно сразу
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            listener.onAllDataRead();
+                        }
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() throws IOException {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) throws IOException {
+                    return input.read(bytes, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
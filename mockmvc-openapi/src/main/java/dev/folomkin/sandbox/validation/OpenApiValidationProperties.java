@@ -0,0 +1,27 @@
+package dev.folomkin.sandbox.validation;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * @param enabled     включает фильтр
+ * @param spec        спецификация на classpath, разбирается один раз при старте
+ * @param mode        STRICT - нарушения контракта отклоняются, REPORT_ONLY - только пишутся в лог
+ * @param sampleRate  доля проверяемых запросов от 0 до 1
+ * @param pathPrefix  проверяются только запросы с этим префиксом пути
+ * @param maxBodySize тела запросов и ответов больше этого размера не копятся в памяти и не проверяются;
+ *                    в STRICT chunked-запрос больше него отклоняется с 413
+ */
+@ConfigurationProperties(prefix = "catalogue.openapi.validation")
+public record OpenApiValidationProperties(@DefaultValue("true") boolean enabled,
+                                          @DefaultValue("static/openapi.json") String spec,
+                                          @DefaultValue("REPORT_ONLY") Mode mode,
+                                          @DefaultValue("1.0") double sampleRate,
+                                          @DefaultValue("/api/") String pathPrefix,
+                                          @DefaultValue("1MB") DataSize maxBodySize) {
+
+    public enum Mode {
+        STRICT, REPORT_ONLY
+    }
+}
@@ -3,7 +3,7 @@ package dev.folomkin.sandbox;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "catalogue.products.log=")
 class SandboxApplicationTests {
 
     @Test
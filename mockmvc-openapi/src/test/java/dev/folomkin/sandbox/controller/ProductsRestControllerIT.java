@@ -2,30 +2,58 @@ package dev.folomkin.sandbox.controller;
 
 
 import com.atlassian.oai.validator.OpenApiInteractionValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.atlassian.oai.validator.whitelist.ValidationErrorsWhitelist;
 import com.atlassian.oai.validator.whitelist.rule.WhitelistRule;
 import com.atlassian.oai.validator.whitelist.rule.WhitelistRules;
+import dev.folomkin.jsoncodegen.JsonCodecHttpMessageConverter;
+import dev.folomkin.sandbox.repository.ProductRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ResolvableType;
+import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletResponse;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static com.atlassian.oai.validator.mockmvc.OpenApiValidationMatchers.openApi;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 
-@SpringBootTest
+@SpringBootTest(properties = {"catalogue.products.log=", "catalogue.products.import-batch-size=2",
+        "catalogue.products.import-max-line-size=128B"})
 @AutoConfigureMockMvc
 class ProductsRestControllerIT {
 
     @Autowired
     MockMvc mockMvc;
 
+    @Autowired
+    HttpMessageConverters messageConverters;
+
+    @Autowired
+    ProductRepository productRepository;
+
     @Test
     void getProduct_ReturnsResponseWithStatusOk() throws Exception {
         // given
@@ -55,6 +83,84 @@ class ProductsRestControllerIT {
     }
 
     @Test
+    void getProductById_ReturnsResponseWithStatusOk() throws Exception {
+        // given
+        var requestBuilder = MockMvcRequestBuilders.get("/api/catalogue/products/a396a088-172c-11ee-aa6f-4f6009552212");
+
+        // when
+        this.mockMvc.perform(requestBuilder)
+                // then
+                .andExpectAll(
+                        status().isOk(),
+                        openApi().isValid("static/openapi.json"),
+                        content().contentTypeCompatibleWith("application/vnd.eselpo.catalogue.product.v1+json"),
+                        content().json("""
+                                {
+                                  "id": "a396a088-172c-11ee-aa6f-4f6009552212",
+                                  "title": "Кефир, 3,2%, 0,5 литра",
+                                  "details": "Кефир с жирностью 3,2% в упаковке 0,5 литра"
+                                }
+                                """)
+                );
+    }
+
+    @Test
+    void getProducts_CborAccepted_ReturnsSameDocumentInCbor() throws Exception {
+        // given
+        var json = this.mockMvc.perform(MockMvcRequestBuilders.get("/api/catalogue/products"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // when
+        var cbor = this.mockMvc.perform(MockMvcRequestBuilders.get("/api/catalogue/products")
+                        .header(HttpHeaders.ACCEPT, "application/vnd.eselpo.catalogue.products.v1+cbor"))
+                // then
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType("application/vnd.eselpo.catalogue.products.v1+cbor"),
+                        header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT))
+                )
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(new ObjectMapper().readTree(json), new ObjectMapper(new CBORFactory()).readTree(cbor));
+    }
+
+    @Test
+    @DirtiesContext
+    void createProduct_SmilePayload_ReturnsSmile() throws Exception {
+        // given
+        var smile = new ObjectMapper(new SmileFactory());
+        var requestBuilder = post("/api/catalogue/products")
+                .contentType("application/vnd.eselpo.catalogue.new-product-payload.v1+smile")
+                .accept("application/vnd.eselpo.catalogue.product.v1+smile")
+                .content(smile.writeValueAsBytes(new ProductsRestController.NewProductPayloadV1(
+                        "Молоко, 3,2%, 1 литр", "Молоко с жирностью 3,2% в упаковке 1 литр")));
+
+        // when
+        var body = this.mockMvc.perform(requestBuilder)
+                // then
+                .andExpectAll(
+                        status().isCreated(),
+                        content().contentType("application/vnd.eselpo.catalogue.product.v1+smile")
+                )
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals("Молоко, 3,2%, 1 литр", smile.readTree(body).get("title").asText());
+    }
+
+    @Test
+    void getProductById_ProductNotFound_ReturnsResponseWithStatusNotFound() throws Exception {
+        // given
+        var requestBuilder = MockMvcRequestBuilders.get("/api/catalogue/products/a396a088-172c-11ee-aa6f-4f6009552299");
+
+        // when
+        this.mockMvc.perform(requestBuilder)
+                // then
+                .andExpectAll(
+                        status().isNotFound(),
+                        openApi().isValid("static/openapi.json")
+                );
+    }
+
+    @Test
+    @DirtiesContext
     void createProduct_ReturnsResponseWithStatusCreated() throws Exception {
         // given
         var requestBuilder = post("/api/catalogue/products")
@@ -80,8 +186,11 @@ class ProductsRestControllerIT {
                                     "details": "Молоко с жирностью 3,2% в упаковке 1 литр"
                                 }
                                 """),
-                        jsonPath("$.id").exists()
-                );
+                        jsonPath("$.id").value(matchesPattern("[0-9a-f]{8}-[0-9a-f]{4}-7[0-9a-f]{3}-[89ab][0-9a-f]{3}-[0-9a-f]{12}"))
+                )
+                .andDo(result -> this.mockMvc.perform(
+                                MockMvcRequestBuilders.get(result.getResponse().getHeader(HttpHeaders.LOCATION)))
+                        .andExpect(status().isOk()));
     }
 
     @Test
@@ -109,4 +218,171 @@ class ProductsRestControllerIT {
                                 .build())
                 );
     }
-}
\ No newline at end of file
+
+    @Test
+    @DirtiesContext
+    void importProducts_ReturnsResultPerLine() throws Exception {
+        // given
+        var requestBuilder = post("/api/catalogue/products")
+                .contentType("application/vnd.eselpo.catalogue.new-product-payload.v1+x-ndjson")
+                .content("""
+                        {"title": "Сметана, 20%, 300 г", "details": "Сметана в стакане"}
+                        {"title": null, "details": "Без названия"}
+
+                        {"title": "Творог, 9%
+                        {"title": "Ряженка, 4%, 0,5 литра"}
+                        """ + "{\"title\": \"" + "Кефир ".repeat(100) + "\"}\n");
+
+        // when
+        var result = this.mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        var response = this.mockMvc.perform(asyncDispatch(result))
+                // then
+                .andExpectAll(
+                        status().isOk(),
+                        openApi().isValid("static/openapi.json"),
+                        content().contentTypeCompatibleWith(
+                                "application/vnd.eselpo.catalogue.product-import-results.v1+x-ndjson")
+                )
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        var lines = response.lines().toList();
+        assertEquals(5, lines.size());
+        var objectMapper = new ObjectMapper();
+        var first = objectMapper.readTree(lines.get(0));
+        assertEquals(1, first.get("line").asInt());
+        assertEquals(201, first.get("status").asInt());
+        assertEquals("Сметана, 20%, 300 г", first.at("/product/title").asText());
+        var rejected = objectMapper.readTree(lines.get(1));
+        assertEquals(2, rejected.get("line").asInt());
+        assertEquals(400, rejected.get("status").asInt());
+        assertEquals("title is required", rejected.get("error").asText());
+        assertEquals(4, objectMapper.readTree(lines.get(2)).get("line").asInt());
+        assertEquals(400, objectMapper.readTree(lines.get(2)).get("status").asInt());
+        assertEquals(201, objectMapper.readTree(lines.get(3)).get("status").asInt());
+        var tooLong = objectMapper.readTree(lines.get(4));
+        assertEquals(6, tooLong.get("line").asInt());
+        assertEquals("line exceeds 128B", tooLong.get("error").asText());
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get(
+                        "/api/catalogue/products/" + first.at("/product/id").asText()))
+                .andExpect(status().isOk());
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/api/catalogue/products"))
+                .andExpect(jsonPath("$.length()").value(4));
+    }
+
+    @Test
+    @DirtiesContext
+    void getChanges_ReturnsOnlyChangesAfterSince() throws Exception {
+        // given
+        this.mockMvc.perform(post("/api/catalogue/products")
+                        .contentType("application/vnd.eselpo.catalogue.new-product-payload.v1+json")
+                        .content("""
+                                {"title": "Сметана, 20%, 300 г"}
+                                """))
+                .andExpect(status().isCreated());
+
+        // when
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/api/catalogue/products/changes").param("limit", "1"))
+                // then
+                .andExpectAll(
+                        status().isOk(),
+                        openApi().isValid("static/openapi.json"),
+                        content().contentTypeCompatibleWith(
+                                "application/vnd.eselpo.catalogue.product-changes.v1+json"),
+                        jsonPath("$.changes.length()").value(1),
+                        jsonPath("$.changes[0].sequence").value(1),
+                        jsonPath("$.changes[0].product.id").value("a396a088-172c-11ee-aa6f-4f6009552211"),
+                        jsonPath("$.next").value(1),
+                        jsonPath("$.hasMore").value(true),
+                        jsonPath("$.epoch").value(this.productRepository.epoch())
+                );
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/api/catalogue/products/changes").param("since", "2")
+                        .param("epoch", this.productRepository.epoch()))
+                .andExpectAll(
+                        status().isOk(),
+                        openApi().isValid("static/openapi.json"),
+                        jsonPath("$.changes[*].product.title").value(contains("Сметана, 20%, 300 г")),
+                        jsonPath("$.next").value(3),
+                        jsonPath("$.hasMore").value(false)
+                );
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/api/catalogue/products/changes").param("since", "3"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.changes.length()").value(0),
+                        jsonPath("$.next").value(3)
+                );
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/api/catalogue/products/changes").param("since", "4"))
+                .andExpect(status().isGone());
+        // номер из другой эпохи: хранилище начато заново, хотя номер 1 в нём есть
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/api/catalogue/products/changes").param("since", "1")
+                        .param("epoch", "0123456789abcdef"))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    @DirtiesContext
+    void streamChanges_ContinuesFromLastEventId() throws Exception {
+        // given
+        var requestBuilder = MockMvcRequestBuilders.get("/api/catalogue/products/changes")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Last-Event-ID", this.productRepository.epoch() + ":1");
+
+        // when
+        var response = this.mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+        this.mockMvc.perform(post("/api/catalogue/products")
+                        .contentType("application/vnd.eselpo.catalogue.new-product-payload.v1+json")
+                        .content("""
+                                {"title": "Сметана, 20%, 300 г"}
+                                """))
+                .andExpect(status().isCreated());
+
+        // then
+        var epoch = this.productRepository.epoch();
+        var events = awaitContent(response, "id:" + epoch + ":3");
+        assertFalse(events.contains("id:" + epoch + ":1\n"));
+        assertTrue(events.contains("id:" + epoch + ":2\n"));
+        assertTrue(events.contains("\"title\":\"Сметана, 20%, 300 г\""));
+    }
+
+    @Test
+    void streamChanges_LastEventIdFromAnotherEpoch_ReturnsGone() throws Exception {
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/api/catalogue/products/changes")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", "0123456789abcdef:1"))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    void messageConverters_GeneratedCodecWritesProductsBeforeJackson() {
+        // given
+        var type = ResolvableType.forClassWithGenerics(List.class, ProductsRestController.ProductV1Presentation.class);
+        var mediaType = MediaType.valueOf("application/vnd.eselpo.catalogue.products.v1+json");
+
+        // when
+        var converter = this.messageConverters.getConverters().stream()
+                .filter(GenericHttpMessageConverter.class::isInstance)
+                .map(candidate -> (GenericHttpMessageConverter<?>) candidate)
+                .filter(candidate -> candidate.canWrite(type.getType(), List.class, mediaType))
+                .findFirst().orElseThrow();
+
+        // then
+        assertTrue(converter instanceof JsonCodecHttpMessageConverter, converter.getClass().getName());
+        assertFalse(converter.canWrite(ResolvableType.forClassWithGenerics(List.class, String.class).getType(),
+                List.class, mediaType));
+    }
+
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        String content = response.getContentAsString(StandardCharsets.UTF_8);
+        while (!content.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            content = response.getContentAsString(StandardCharsets.UTF_8);
+        }
+        assertTrue(content.contains(expected), content);
+        return content;
+    }
+}
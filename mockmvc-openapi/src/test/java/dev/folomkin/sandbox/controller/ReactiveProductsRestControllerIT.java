@@ -0,0 +1,207 @@
+package dev.folomkin.sandbox.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import dev.folomkin.sandbox.repository.ReactiveProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+@SpringBootTest(properties = {"spring.main.web-application-type=reactive",
+        "catalogue.products.log=", "catalogue.products.import-batch-size=2"})
+@AutoConfigureWebTestClient
+class ReactiveProductsRestControllerIT {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    ReactiveProductRepository productRepository;
+
+    @Test
+    void getProducts_ReturnsResponseWithStatusOk() {
+        // when
+        this.webTestClient.get().uri("/api/catalogue/products")
+                .exchange()
+                // then
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith("application/vnd.eselpo.catalogue.products.v1+json")
+                .expectBody().json("""
+                        [
+                          {
+                            "id": "a396a088-172c-11ee-aa6f-4f6009552211",
+                            "title": "Молоко, 3,2%, 1 литр",
+                            "details": "Молоко с жирностью 3,2% в упаковке 1 литр"
+                          },
+                          {
+                            "id": "a396a088-172c-11ee-aa6f-4f6009552212",
+                            "title": "Кефир, 3,2%, 0,5 литра",
+                            "details": "Кефир с жирностью 3,2% в упаковке 0,5 литра"
+                          }
+                        ]
+                        """);
+    }
+
+    @Test
+    void getProducts_BinaryFormatAccepted_ReturnsWholeArray() throws Exception {
+        for (var mapper : new ObjectMapper[]{new ObjectMapper(new CBORFactory()), new ObjectMapper(new SmileFactory())}) {
+            // given
+            var format = mapper.getFactory() instanceof CBORFactory ? "cbor" : "smile";
+
+            // when
+            var body = this.webTestClient.get().uri("/api/catalogue/products")
+                    .accept(MediaType.valueOf("application/vnd.eselpo.catalogue.products.v1+" + format))
+                    .exchange()
+                    // then
+                    .expectStatus().isOk()
+                    .expectHeader().contentType("application/vnd.eselpo.catalogue.products.v1+" + format)
+                    .expectBody(byte[].class).returnResult().getResponseBody();
+            JsonNode products = mapper.readTree(body);
+            assertEquals(2, products.size());
+            assertEquals("Кефир, 3,2%, 0,5 литра", products.get(1).get("title").asText());
+        }
+    }
+
+    @Test
+    void getProductById_ProductNotFound_ReturnsResponseWithStatusNotFound() {
+        // when
+        this.webTestClient.get().uri("/api/catalogue/products/a396a088-172c-11ee-aa6f-4f6009552299")
+                .exchange()
+                // then
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DirtiesContext
+    void createProduct_ReturnsResponseWithStatusCreated() {
+        // when
+        var location = this.webTestClient.post().uri("/api/catalogue/products")
+                .contentType(MediaType.valueOf("application/vnd.eselpo.catalogue.new-product-payload.v1+json"))
+                .bodyValue("""
+                        {
+                            "title": "Молоко, 3,2%, 1 литр",
+                            "details": "Молоко с жирностью 3,2% в упаковке 1 литр"
+                        }
+                        """)
+                .exchange()
+                // then
+                .expectStatus().isCreated()
+                .expectHeader().contentTypeCompatibleWith("application/vnd.eselpo.catalogue.product.v1+json")
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Молоко, 3,2%, 1 литр")
+                .jsonPath("$.id").value(matchesPattern(
+                        "[0-9a-f]{8}-[0-9a-f]{4}-7[0-9a-f]{3}-[89ab][0-9a-f]{3}-[0-9a-f]{12}"))
+                .returnResult().getResponseHeaders().getLocation();
+
+        this.webTestClient.get().uri(location)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    @DirtiesContext
+    void importProducts_StreamsResultPerLine() {
+        // given
+        var body = """
+                {"title": "Сметана, 20%, 300 г", "details": "Сметана в стакане"}
+                {"title": null, "details": "Без названия"}
+
+                {"title": "Творог, 9%
+                {"title": "Ряженка, 4%, 0,5 литра"}
+                """;
+
+        // when
+        var results = this.webTestClient.post().uri("/api/catalogue/products")
+                .contentType(MediaType.valueOf(ProductsRestController.NEW_PRODUCTS_NDJSON))
+                .bodyValue(body)
+                .exchange()
+                // then
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(ProductsRestController.IMPORT_RESULTS_NDJSON)
+                .returnResult(String.class).getResponseBody();
+
+        StepVerifier.create(results.map(ReactiveProductsRestControllerIT::json), 1)
+                .assertNext(first -> {
+                    assertEquals(1, first.get("line").asInt());
+                    assertEquals(201, first.get("status").asInt());
+                    assertEquals("Сметана, 20%, 300 г", first.at("/product/title").asText());
+                })
+                .thenRequest(3)
+                .assertNext(rejected -> assertEquals("title is required", rejected.get("error").asText()))
+                .assertNext(malformed -> {
+                    assertEquals(4, malformed.get("line").asInt());
+                    assertEquals(400, malformed.get("status").asInt());
+                })
+                .assertNext(last -> assertEquals(201, last.get("status").asInt()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DirtiesContext
+    void streamChanges_EmitsBacklogThenNewProducts() {
+        // when
+        var events = this.webTestClient.get()
+                .uri(builder -> builder.path("/api/catalogue/products/changes").queryParam("since", 1).build())
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                // then
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<JsonNode>>() {
+                })
+                .getResponseBody();
+
+        StepVerifier.create(events)
+                .assertNext(event -> {
+                    assertEquals(this.productRepository.epoch() + ":2", event.id());
+                    assertEquals("a396a088-172c-11ee-aa6f-4f6009552212", event.data().at("/product/id").asText());
+                })
+                .then(() -> this.webTestClient.post().uri("/api/catalogue/products")
+                        .contentType(MediaType.valueOf("application/vnd.eselpo.catalogue.new-product-payload.v1+json"))
+                        .bodyValue("""
+                                {"title": "Сметана, 20%, 300 г"}
+                                """)
+                        .exchange()
+                        .expectStatus().isCreated())
+                .assertNext(event -> {
+                    assertEquals(this.productRepository.epoch() + ":3", event.id());
+                    assertEquals(3, event.data().get("sequence").asLong());
+                    assertEquals("Сметана, 20%, 300 г", event.data().at("/product/title").asText());
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        this.webTestClient.get()
+                .uri(builder -> builder.path("/api/catalogue/products/changes").queryParam("since", 2).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.changes[0].sequence").isEqualTo(3)
+                .jsonPath("$.next").isEqualTo(3)
+                .jsonPath("$.epoch").isEqualTo(this.productRepository.epoch());
+    }
+
+    private static JsonNode json(String line) {
+        try {
+            return new ObjectMapper().readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package dev.folomkin.sandbox.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedIdGeneratorTest {
+
+    @Test
+    void generateId_ReturnsVersion7WithTimestamp() {
+        // given
+        var generator = new TimeOrderedIdGenerator(() -> 1_700_000_000_123L);
+
+        // when
+        UUID id = generator.generateId();
+
+        // then
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(1_700_000_000_123L, id.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    void generateId_SameMillisecond_IsMonotonicAndBorrowsNextMillisecond() {
+        // given
+        var generator = new TimeOrderedIdGenerator(() -> 1_700_000_000_000L);
+
+        // when
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(generator.generateId());
+        }
+
+        // then
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, "ids must grow: " + i);
+        }
+        assertTrue(ids.get(ids.size() - 1).getMostSignificantBits() >>> 16 > 1_700_000_000_000L);
+    }
+
+    @Test
+    void generateId_ConcurrentThreads_ProduceUniqueIds() throws Exception {
+        // given
+        var generator = new TimeOrderedIdGenerator();
+        Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // when
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            futures.add(executor.submit(() -> {
+                Set<UUID> own = new HashSet<>();
+                for (int i = 0; i < 50_000; i++) {
+                    own.add(generator.generateId());
+                }
+                ids.addAll(own);
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // then
+        assertEquals(8 * 50_000, ids.size());
+    }
+}
@@ -0,0 +1,178 @@
+package dev.folomkin.sandbox.repository;
+
+import dev.folomkin.sandbox.ProductStoreProperties;
+import dev.folomkin.sandbox.id.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private ProductRepository open(Path file) {
+        return new ProductRepository(new ProductStoreProperties(file, 1000, DataSize.ofKilobytes(64)), new TimeOrderedIdGenerator());
+    }
+
+    @Test
+    void create_ReplaysProductsAfterRestart() throws IOException {
+        Path file = directory.resolve("products.log");
+        List<Product> created = new ArrayList<>();
+        try (ProductRepository repository = open(file)) {
+            assertEquals(ProductRepository.SEED, repository.findAll());
+            List<CompletableFuture<Product>> futures = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                futures.add(repository.createAsync("Товар " + i, i % 3 == 0 ? null : "Описание " + i));
+            }
+            futures.forEach(future -> created.add(future.join()));
+        }
+
+        try (ProductRepository repository = open(file)) {
+            List<Product> all = repository.findAll();
+            assertEquals(ProductRepository.SEED.size() + created.size(), all.size());
+            assertEquals(ProductRepository.SEED, all.subList(0, 2));
+            assertEquals(created, all.subList(2, all.size()));
+            assertEquals(created.get(3), repository.findById(created.get(3).id()).orElseThrow());
+        }
+    }
+
+    @Test
+    void open_TruncatesTornTail() throws IOException {
+        Path file = directory.resolve("products.log");
+        Product last;
+        try (ProductRepository repository = open(file)) {
+            repository.create("Сметана", "20%");
+            last = repository.create("Творог", null);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        // запись оборвалась посреди последнего товара
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        try (ProductRepository repository = open(file)) {
+            assertEquals(3, repository.findAll().size());
+            assertTrue(repository.findById(last.id()).isEmpty());
+            Product recreated = repository.create("Творог", null);
+            assertEquals(recreated, repository.findById(recreated.id()).orElseThrow());
+        }
+        try (ProductRepository repository = open(file)) {
+            assertEquals(4, repository.findAll().size());
+        }
+    }
+
+    @Test
+    void open_CorruptRecordInTheMiddle_FailsWithoutTruncating() throws IOException {
+        Path file = directory.resolve("products.log");
+        try (ProductRepository repository = open(file)) {
+            repository.create("Сметана", "20%");
+            repository.create("Творог", null);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        // испорчен номер первой записи, за ней в файле целые записи
+        bytes[10] ^= 1;
+        Files.write(file, bytes);
+
+        assertThrows(UncheckedIOException.class, () -> open(file));
+        assertArrayEquals(bytes, Files.readAllBytes(file));
+    }
+
+    @Test
+    void close_WritesProductsQueuedBeforeIt() throws IOException {
+        Path file = directory.resolve("products.log");
+        List<CompletableFuture<Product>> futures = new ArrayList<>();
+        try (ProductRepository repository = open(file)) {
+            for (int i = 0; i < 2000; i++) {
+                futures.add(repository.createAsync("Товар " + i, null));
+            }
+        }
+        futures.forEach(CompletableFuture::join);
+
+        try (ProductRepository repository = open(file)) {
+            assertEquals(ProductRepository.SEED.size() + futures.size(), repository.findAll().size());
+        }
+    }
+
+    @Test
+    void close_AppendsRacingWithItAllComplete() throws Exception {
+        Path file = directory.resolve("products.log");
+        List<CompletableFuture<Product>> futures = Collections.synchronizedList(new ArrayList<>());
+        ProductRepository repository = open(file);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int t = 0; t < 4; t++) {
+                executor.execute(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        futures.add(repository.createAsync("Товар " + i, null));
+                    }
+                });
+            }
+            repository.close();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        // принятые до close записаны, остальные отклонены, но ни одно не висит
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .handle((ignored, error) -> null)
+                .get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void findChanges_ContinuesSequenceAfterRestart() throws IOException {
+        Path file = directory.resolve("products.log");
+        Product first;
+        try (ProductRepository repository = open(file)) {
+            first = repository.create("Сметана", "20%");
+        }
+
+        try (ProductRepository repository = open(file)) {
+            List<Long> notified = new ArrayList<>();
+            repository.addChangeListener(() -> notified.add(repository.lastSequence()));
+            Product second = repository.create("Творог", null);
+
+            assertEquals(List.of(4L), notified);
+            assertEquals(List.of(new ProductChange(3, first), new ProductChange(4, second)),
+                    repository.findChanges(2, 10));
+            assertEquals(List.of(new ProductChange(1, ProductRepository.SEED.get(0))), repository.findChanges(0, 1));
+            assertTrue(repository.findChanges(4, 10).isEmpty());
+        }
+    }
+
+    @Test
+    void epoch_SurvivesRestartAndChangesWhenLogStartsOver() throws IOException {
+        Path file = directory.resolve("products.log");
+        String epoch;
+        try (ProductRepository repository = open(file)) {
+            epoch = repository.epoch();
+        }
+        try (ProductRepository repository = open(file)) {
+            assertEquals(epoch, repository.epoch());
+        }
+
+        // журнал потерян: номера пойдут с 1, эпоха должна смениться
+        Files.delete(file);
+        try (ProductRepository repository = open(file)) {
+            assertNotEquals(epoch, repository.epoch());
+        }
+        // без журнала эпоха своя у каждого экземпляра
+        try (ProductRepository first = open(null); ProductRepository second = open(null)) {
+            assertNotEquals(first.epoch(), second.epoch());
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package dev.folomkin.sandbox.validation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {"catalogue.products.log=", "catalogue.openapi.validation.mode=STRICT"})
+@AutoConfigureMockMvc
+class OpenApiValidationFilterIT {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    OpenApiValidationFilter filter;
+
+    @Test
+    void validRequest_PassesAndReportsValidationCost() throws Exception {
+        // given
+        long validated = filter.statistics().validated();
+
+        // when
+        this.mockMvc.perform(get("/api/catalogue/products/a396a088-172c-11ee-aa6f-4f6009552211"))
+                // then
+                .andExpectAll(
+                        status().isOk(),
+                        header().string("Server-Timing", startsWith("openapi-validation;dur="))
+                );
+        assertEquals(validated + 1, filter.statistics().validated());
+    }
+
+    @Test
+    void invalidRequest_StrictMode_ReturnsProblemWithoutCallingController() throws Exception {
+        // given
+        var errors = filter.statistics().requestErrors();
+
+        // when
+        this.mockMvc.perform(post("/api/catalogue/products")
+                        .contentType("application/vnd.eselpo.catalogue.new-product-payload.v1+json")
+                        .content("""
+                                {"details": "Без названия"}
+                                """))
+                // then
+                .andExpectAll(
+                        status().isBadRequest(),
+                        content().contentTypeCompatibleWith("application/problem+json"),
+                        jsonPath("$.errors").isNotEmpty()
+                );
+        assertEquals(errors + 1, filter.statistics().requestErrors());
+        this.mockMvc.perform(get("/api/catalogue/products"))
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void invalidRequest_BinaryAccepted_IsStillRejected() throws Exception {
+        // given
+        var errors = filter.statistics().requestErrors();
+
+        // when
+        this.mockMvc.perform(post("/api/catalogue/products")
+                        .contentType("application/vnd.eselpo.catalogue.new-product-payload.v1+json")
+                        .accept("application/vnd.eselpo.catalogue.product.v1+cbor")
+                        .content("""
+                                {"details": "Без названия"}
+                                """))
+                // then
+                .andExpect(status().isBadRequest());
+        assertEquals(errors + 1, filter.statistics().requestErrors());
+    }
+
+    @Test
+    void binaryResponse_RequestValidatedResponseSkipped() throws Exception {
+        // given
+        var before = filter.statistics();
+
+        // when
+        this.mockMvc.perform(get("/api/catalogue/products")
+                        .accept("application/vnd.eselpo.catalogue.products.v1+cbor"))
+                // then
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType("application/vnd.eselpo.catalogue.products.v1+cbor"),
+                        header().string("Server-Timing", startsWith("openapi-validation;dur="))
+                );
+        var after = filter.statistics();
+        assertEquals(before.validated() + 1, after.validated());
+        assertEquals(before.responseErrors(), after.responseErrors());
+    }
+
+    @Test
+    void nonApiRequest_IsNotValidated() throws Exception {
+        // given
+        var before = filter.statistics();
+
+        // when
+        this.mockMvc.perform(get("/static/openapi.json"))
+                // then
+                .andExpect(header().doesNotExist("Server-Timing"));
+        assertEquals(before, filter.statistics());
+    }
+
+    @Test
+    void chunkedRequest_OverLimit_ReturnsPayloadTooLarge() throws Exception {
+        // given
+        var smallFilter = smallFilter(OpenApiValidationProperties.Mode.STRICT);
+        var response = new MockHttpServletResponse();
+        var chain = new MockFilterChain();
+
+        // when
+        smallFilter.doFilter(new ChunkedRequest("""
+                {"title": "Молоко, 3,2%, 1 литр"}
+                """), response, chain);
+
+        // then
+        assertEquals(413, response.getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void chunkedRequest_OverLimit_ReportOnly_PassesWholeBodyUnvalidated() throws Exception {
+        // given
+        var smallFilter = smallFilter(OpenApiValidationProperties.Mode.REPORT_ONLY);
+        var body = """
+                {"title": "Молоко, 3,2%, 1 литр"}
+                """;
+        var chain = new MockFilterChain();
+
+        // when
+        smallFilter.doFilter(new ChunkedRequest(body), new MockHttpServletResponse(), chain);
+
+        // then
+        var read = chain.getRequest().getInputStream().readAllBytes();
+        assertEquals(body, new String(read, StandardCharsets.UTF_8));
+        assertEquals(1, smallFilter.statistics().skipped());
+        assertEquals(0, smallFilter.statistics().validated());
+    }
+
+    @Test
+    void response_OverLimit_IsWrittenThroughUnvalidated() throws Exception {
+        // given
+        var smallFilter = smallFilter(OpenApiValidationProperties.Mode.STRICT);
+        var body = "[" + "{\"id\": 1},".repeat(8) + "{\"id\": 1}]";
+        var response = new MockHttpServletResponse();
+        var chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.setContentType("application/vnd.eselpo.catalogue.products.v1+json");
+                response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        });
+
+        // when
+        smallFilter.doFilter(new MockHttpServletRequest("GET", "/api/catalogue/products"), response, chain);
+
+        // then
+        assertEquals(200, response.getStatus());
+        assertEquals(body, response.getContentAsString());
+        assertEquals(1, smallFilter.statistics().skipped());
+        assertEquals(0, smallFilter.statistics().responseErrors());
+    }
+
+    @Test
+    void cachedBody_ReadListener_ReceivesWholeBody() throws Exception {
+        // given
+        var body = """
+                {"title": "Молоко, 3,2%, 1 литр"}
+                """;
+        var read = new ByteArrayOutputStream();
+        var completed = new AtomicBoolean();
+        var chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                var input = request.getInputStream();
+                input.setReadListener(new ReadListener() {
+                    @Override
+                    public void onDataAvailable() throws IOException {
+                        while (input.isReady() && !input.isFinished()) {
+                            read.write(input.read());
+                        }
+                    }
+
+                    @Override
+                    public void onAllDataRead() {
+                        completed.set(true);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        throw new AssertionError(t);
+                    }
+                });
+                response.setStatus(HttpServletResponse.SC_CREATED);
+            }
+        });
+
+        // when
+        filter.doFilter(new ChunkedRequest(body), new MockHttpServletResponse(), chain);
+
+        // then
+        assertTrue(completed.get());
+        assertEquals(body, read.toString(StandardCharsets.UTF_8));
+    }
+
+    private static OpenApiValidationFilter smallFilter(OpenApiValidationProperties.Mode mode) {
+        var properties = new OpenApiValidationProperties(true, "static/openapi.json", mode, 1.0, "/api/",
+                DataSize.ofBytes(16));
+        return new OpenApiValidationFilter(properties, new ObjectMapper());
+    }
+
+    // тело без Content-Length, как у chunked-запроса
+    private static final class ChunkedRequest extends MockHttpServletRequest {
+
+        ChunkedRequest(String body) {
+            super("POST", "/api/catalogue/products");
+            setContentType("application/vnd.eselpo.catalogue.new-product-payload.v1+json");
+            setContent(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+    }
+}
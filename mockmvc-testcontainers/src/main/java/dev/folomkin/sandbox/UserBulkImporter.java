@@ -0,0 +1,157 @@
+package dev.folomkin.sandbox;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Потоковая загрузка пользователей из NDJSON пачками.
+ * Пока одна пачка пишется в базу, следующая уже читается из запроса;
+ * в памяти одновременно не больше двух пачек, каков бы ни был размер тела.
+ * Записанные пачки фиксируются сразу: при ошибке посередине они остаются в таблице.
+ */
+@Component
+public class UserBulkImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(UserBulkImporter.class);
+
+    static final int MAX_USERNAME_LENGTH = 100;
+
+    public record NewUser(String username) {
+    }
+
+    public record BatchLatency(double minMillis, double avgMillis, double maxMillis) {
+    }
+
+    public record Report(long rows, long batches, String method, long elapsedMillis,
+                         double rowsPerSecond, BatchLatency batchLatency) {
+    }
+
+    static class InvalidLineException extends IllegalArgumentException {
+        InvalidLineException(long line, String message) {
+            super("Line " + line + ": " + message);
+        }
+    }
+
+    private final UsersRepository usersRepository;
+    private final ObjectReader reader;
+    private final AsyncTaskExecutor applicationTaskExecutor;
+    private final UserBulkProperties properties;
+
+    public UserBulkImporter(UsersRepository usersRepository, ObjectMapper objectMapper,
+                            AsyncTaskExecutor applicationTaskExecutor, UserBulkProperties properties) {
+        this.usersRepository = usersRepository;
+        this.reader = objectMapper.readerFor(NewUser.class);
+        this.applicationTaskExecutor = applicationTaskExecutor;
+        this.properties = properties;
+    }
+
+    public Report importUsers(InputStream body) throws IOException {
+        boolean copy = properties.copy() && usersRepository.supportsCopy();
+        long start = System.nanoTime();
+        LongSummaryStatistics latencies = new LongSummaryStatistics();
+        CompletableFuture<Void> inFlight = CompletableFuture.completedFuture(null);
+        long rows = 0;
+        try (MappingIterator<NewUser> users = reader.readValues(body)) {
+            List<NewUser> batch = new ArrayList<>(properties.batchSize());
+            while (hasNext(users)) {
+                batch.add(validate(next(users), users.getCurrentLocation().getLineNr()));
+                if (batch.size() == properties.batchSize()) {
+                    inFlight = submit(inFlight, batch, copy, latencies);
+                    rows += batch.size();
+                    batch = new ArrayList<>(properties.batchSize());
+                }
+            }
+            if (!batch.isEmpty()) {
+                inFlight = submit(inFlight, batch, copy, latencies);
+                rows += batch.size();
+            }
+        } catch (RuntimeException | IOException e) {
+            // начатая пачка дописывается, её собственная ошибка не заслоняет исходную
+            inFlight.exceptionally(failure -> null).join();
+            throw e;
+        }
+        await(inFlight);
+        long elapsed = System.nanoTime() - start;
+        Report report = new Report(rows, latencies.getCount(), copy ? "copy" : "batch", elapsed / 1_000_000,
+                rows * 1e9 / Math.max(elapsed, 1),
+                new BatchLatency(latencies.getCount() == 0 ? 0 : latencies.getMin() / 1e6,
+                        latencies.getAverage() / 1e6, latencies.getMax() / 1e6));
+        log.info("Imported {} users in {} batches via {}: {} rows/s, batch latency {} ms avg, {} ms max",
+                rows, report.batches(), report.method(), Math.round(report.rowsPerSecond()),
+                Math.round(report.batchLatency().avgMillis()), Math.round(report.batchLatency().maxMillis()));
+        return report;
+    }
+
+    private static boolean hasNext(MappingIterator<NewUser> users) throws IOException {
+        try {
+            return users.hasNextValue();
+        } catch (JacksonException e) {
+            throw invalidJson(users, e);
+        }
+    }
+
+    private static NewUser next(MappingIterator<NewUser> users) throws IOException {
+        try {
+            return users.nextValue();
+        } catch (JacksonException e) {
+            throw invalidJson(users, e);
+        }
+    }
+
+    private static InvalidLineException invalidJson(MappingIterator<NewUser> users, JacksonException e) {
+        long line = e.getLocation() != null ? e.getLocation().getLineNr() : users.getCurrentLocation().getLineNr();
+        return new InvalidLineException(line, e.getOriginalMessage());
+    }
+
+    private static NewUser validate(NewUser user, long line) {
+        if (user == null || user.username() == null || user.username().isBlank()) {
+            throw new InvalidLineException(line, "username is required");
+        }
+        if (user.username().length() > MAX_USERNAME_LENGTH) {
+            throw new InvalidLineException(line, "username is longer than " + MAX_USERNAME_LENGTH);
+        }
+        return user;
+    }
+
+    // Ждём предыдущую пачку и отдаём текущую писателю: чтение и запись идут внахлёст
+    private CompletableFuture<Void> submit(CompletableFuture<Void> inFlight, List<NewUser> batch, boolean copy,
+                                           LongSummaryStatistics latencies) {
+        await(inFlight);
+        return CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            if (copy) {
+                usersRepository.copy(batch);
+            } else {
+                usersRepository.insert(batch);
+            }
+            long latency = System.nanoTime() - start;
+            latencies.accept(latency);
+            log.debug("Wrote batch of {} users in {} µs", batch.size(), latency / 1_000);
+        }, applicationTaskExecutor);
+    }
+
+    private static void await(CompletableFuture<Void> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
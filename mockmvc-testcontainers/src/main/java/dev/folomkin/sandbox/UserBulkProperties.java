@@ -0,0 +1,13 @@
+package dev.folomkin.sandbox;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param batchSize строк в одной пачке вставки
+ * @param copy      писать пачки через COPY ... FROM STDIN, если база - PostgreSQL
+ */
+@ConfigurationProperties(prefix = "users.bulk")
+public record UserBulkProperties(@DefaultValue("1000") int batchSize,
+                                 @DefaultValue("false") boolean copy) {
+}
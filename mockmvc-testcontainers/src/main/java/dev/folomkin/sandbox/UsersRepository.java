@@ -0,0 +1,114 @@
+package dev.folomkin.sandbox;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.postgresql.PGConnection;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Доступ к t_user. Чтение по id идёт через кэш "users" (Caffeine, размер и TTL задаются
+ * в spring.cache.caffeine.spec); отсутствующие id тоже кэшируются. Запись сбрасывает
+ * из кэша только вставленные id: они могли быть закэшированы как отсутствующие,
+ * а остальные записи пакетная загрузка не меняет.
+ */
+@Repository
+public class UsersRepository {
+
+    static final String USERS_CACHE = "users";
+
+    static final RowMapper<UsersRestController.User> USER_ROW_MAPPER = (rs, rowNum) ->
+            new UsersRestController.User(rs.getInt("id"), rs.getString("c_username"));
+
+    private static final String FIND_USER = "select id, c_username from t_user where id = :id";
+    private static final String INSERT_USER = "insert into t_user(c_username) values (:username)";
+    private static final String NEXT_USER_IDS =
+            "select nextval(pg_get_serial_sequence('t_user', 'id')) from generate_series(1, :count)";
+    private static final String COPY_USERS = "copy t_user(id, c_username) from stdin (format csv)";
+
+    public record CacheStatistics(long hits, long misses, long evictions, double hitRate, long size) {
+    }
+
+    private final NamedParameterJdbcOperations jdbcOperations;
+    private final CacheManager cacheManager;
+
+    public UsersRepository(NamedParameterJdbcOperations jdbcOperations, CacheManager cacheManager) {
+        this.jdbcOperations = jdbcOperations;
+        this.cacheManager = cacheManager;
+    }
+
+    @Cacheable(cacheNames = USERS_CACHE, sync = true)
+    public UsersRestController.User findById(int id) {
+        List<UsersRestController.User> users = jdbcOperations.query(FIND_USER,
+                new MapSqlParameterSource("id", id), USER_ROW_MAPPER);
+        return users.isEmpty() ? null : users.get(0);
+    }
+
+    public void insert(List<UserBulkImporter.NewUser> users) {
+        SqlParameterSource[] parameters = new SqlParameterSource[users.size()];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = new MapSqlParameterSource("username", users.get(i).username());
+        }
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcOperations.batchUpdate(INSERT_USER, parameters, keys, new String[]{"id"});
+        evict(keys.getKeyList().stream().map(key -> ((Number) key.get("id")).intValue()).toList());
+    }
+
+    // id берутся из последовательности заранее: COPY их не возвращает, а сбросить из кэша нужно именно их
+    public void copy(List<UserBulkImporter.NewUser> users) {
+        List<Integer> ids = jdbcOperations.queryForList(NEXT_USER_IDS,
+                new MapSqlParameterSource("count", users.size()), Integer.class);
+        ByteArrayOutputStream csv = new ByteArrayOutputStream(users.size() * 24);
+        for (int i = 0; i < ids.size(); i++) {
+            String username = users.get(i).username();
+            byte[] line = (ids.get(i) + ",\"" + username.replace("\"", "\"\"") + "\"\n").getBytes(StandardCharsets.UTF_8);
+            csv.write(line, 0, line.length);
+        }
+        jdbcOperations.getJdbcOperations().execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn(COPY_USERS, new ByteArrayInputStream(csv.toByteArray()));
+            } catch (IOException e) {
+                throw new SQLException("COPY failed", e);
+            }
+        });
+        evict(ids);
+    }
+
+    private void evict(List<Integer> ids) {
+        Cache cache = cacheManager.getCache(USERS_CACHE);
+        if (cache != null) {
+            ids.forEach(cache::evict);
+        }
+    }
+
+    public boolean supportsCopy() {
+        return Boolean.TRUE.equals(jdbcOperations.getJdbcOperations().execute(
+                (ConnectionCallback<Boolean>) connection -> connection.isWrapperFor(PGConnection.class)));
+    }
+
+    public CacheStatistics cacheStatistics() {
+        if (!(cacheManager.getCache(USERS_CACHE) instanceof CaffeineCache cache)) {
+            return new CacheStatistics(0, 0, 0, 0, 0);
+        }
+        CacheStats stats = cache.getNativeCache().stats();
+        return new CacheStatistics(stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate(),
+                cache.getNativeCache().estimatedSize());
+    }
+}
@@ -1,47 +1,144 @@
 package dev.folomkin.sandbox;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.List;
 
 @RestController
 @RequestMapping("/api/users")
 public class UsersRestController implements RowMapper<UsersRestController.User> {
 
+    static final int MAX_LIMIT = 10_000;
+
+    // Keyset-пагинация по первичному ключу: цена страницы не зависит от того, насколько она далеко
+    private static final String FIND_USERS = """
+            select id, c_username from t_user
+            where id > :afterId
+            order by id""";
+
     private final NamedParameterJdbcOperations jdbcOperations;
+    private final TransactionOperations transactionOperations;
+    private final ObjectMapper objectMapper;
+    private final UserBulkImporter bulkImporter;
+    private final UsersRepository usersRepository;
+    // сокет сбрасывается по заполнению буфера, а не после каждой строки
+    private final ObjectWriter userWriter;
 
-    public UsersRestController(NamedParameterJdbcOperations jdbcOperations) {
+    public UsersRestController(NamedParameterJdbcOperations jdbcOperations,
+                               TransactionOperations transactionOperations,
+                               ObjectMapper objectMapper,
+                               UserBulkImporter bulkImporter,
+                               UsersRepository usersRepository) {
         this.jdbcOperations = jdbcOperations;
+        this.transactionOperations = transactionOperations;
+        this.objectMapper = objectMapper;
+        this.bulkImporter = bulkImporter;
+        this.usersRepository = usersRepository;
+        this.userWriter = objectMapper.writerFor(User.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     @Override
     public User mapRow(ResultSet rs, int rowNum) throws SQLException {
-        return new User(rs.getInt("id"), rs.getString("c_username"));
+        return UsersRepository.USER_ROW_MAPPER.mapRow(rs, rowNum);
+    }
+
+    /**
+     * Пользователи по возрастанию id, начиная после after_id. Строки пишутся в ответ
+     * по мере чтения курсора, так что память не зависит от размера таблицы.
+     * Следующая страница запрашивается с after_id, равным id последнего пользователя.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> findAllUsers(
+            @RequestParam(name = "after_id", required = false) Integer afterId,
+            @RequestParam(required = false) Integer limit) {
+        if (limit != null && (limit < 1 || limit > MAX_LIMIT)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_LIMIT);
+        }
+        String sql = limit == null ? FIND_USERS : FIND_USERS + " limit :limit";
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("afterId", afterId == null ? Integer.MIN_VALUE : afterId)
+                .addValue("limit", limit);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> {
+                    try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                        generator.writeStartArray();
+                        // драйвер PostgreSQL читает порциями fetch-size только вне autocommit
+                        int[] rowNum = {0};
+                        transactionOperations.executeWithoutResult(status ->
+                                jdbcOperations.query(sql, parameters, rs -> {
+                                    try {
+                                        userWriter.writeValue(generator, mapRow(rs, rowNum[0]++));
+                                    } catch (IOException e) {
+                                        throw new UncheckedIOException(e);
+                                    }
+                                }));
+                        generator.writeEndArray();
+                    }
+                });
+    }
+
+    @GetMapping("/{id}")
+    public User findUser(@PathVariable int id) {
+        User user = usersRepository.findById(id);
+        if (user == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No user with id " + id);
+        }
+        return user;
+    }
+
+    @GetMapping("/cache/stats")
+    public UsersRepository.CacheStatistics cacheStatistics() {
+        return usersRepository.cacheStatistics();
     }
 
-    public List<User> findAllUsers() {
-        List<User> users = new ArrayList<>();
-        return users;
+    /**
+     * Загрузка пользователей из NDJSON, по объекту {"username": ...} в строке.
+     * Тело читается потоком, ответ - сводка по скорости и задержкам пачек.
+     */
+    @PostMapping(path = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public UserBulkImporter.Report bulkImport(InputStream body) throws IOException {
+        return bulkImporter.importUsers(body);
+    }
+
+    @ExceptionHandler(UserBulkImporter.InvalidLineException.class)
+    public ResponseEntity<String> handleInvalidLine(UserBulkImporter.InvalidLineException e) {
+        return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
     }
 
     @Getter
     @Setter
     @NoArgsConstructor
     @AllArgsConstructor
-    class User {
+    public static class User {
         private int id;
-        private String name;
+        private String username;
     }
 }
-
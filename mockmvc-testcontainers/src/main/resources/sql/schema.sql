@@ -1,5 +1,5 @@
 create table t_user(
-                      id int,
+                      id serial,
                       c_username varchar(100) not null,
                       PRIMARY KEY ( id )
-);
\ No newline at end of file
+);
@@ -6,11 +6,17 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.env.Environment;
 import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 //@Testcontainers
@@ -27,7 +33,10 @@ class UsersRestControllerTest {
     @Test
     void findAllUsers_ReturnsUsersList() throws Exception {
         assertEquals("org.postgresql.Driver", environment.getProperty("postgresql.driver"));
-        this.mockMvc.perform(get("/api/users"))
+        MvcResult result = this.mockMvc.perform(get("/api/users"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        this.mockMvc.perform(asyncDispatch(result))
                 .andExpectAll(
                         status().isOk(),
                         content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON),
@@ -40,4 +49,99 @@ class UsersRestControllerTest {
                                 ]""")
                 );
     }
-}
\ No newline at end of file
+
+    @Test
+    void findAllUsers_PagesByAfterId() throws Exception {
+        MvcResult result = this.mockMvc.perform(get("/api/users").param("after_id", "1").param("limit", "2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        this.mockMvc.perform(asyncDispatch(result))
+                .andExpectAll(
+                        status().isOk(),
+                        content().json("""
+                                [
+                                {"id": 2, "username": "j.walker"},
+                                {"id": 3, "username": "j.daniels"}
+                                ]""", true)
+                );
+    }
+
+    @Test
+    void findAllUsers_RejectsInvalidLimit() throws Exception {
+        this.mockMvc.perform(get("/api/users").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DirtiesContext
+    void bulkImport_InsertsUsersInBatches() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 2_500; i++) {
+            body.append("{\"username\": \"bulk.").append(i).append("\"}\n");
+        }
+        this.mockMvc.perform(post("/api/users/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body.toString()))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.rows").value(2_500),
+                        jsonPath("$.batches").value(3),
+                        jsonPath("$.method").value("batch")
+                );
+
+        MvcResult result = this.mockMvc.perform(get("/api/users").param("after_id", "4").param("limit", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        this.mockMvc.perform(asyncDispatch(result))
+                .andExpect(content().json("""
+                        [{"id": 5, "username": "bulk.0"}]""", true));
+    }
+
+    @Test
+    void bulkImport_RejectsInvalidLine() throws Exception {
+        this.mockMvc.perform(post("/api/users/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"username\": \"ok\"}\n{\"username\": null}\n"))
+                .andExpectAll(
+                        status().isBadRequest(),
+                        content().string("Line 2: username is required")
+                );
+    }
+
+    @Test
+    @DirtiesContext
+    void findUser_ServesRepeatReadsFromCacheUntilWrite() throws Exception {
+        this.mockMvc.perform(get("/api/users/2"))
+                .andExpectAll(
+                        status().isOk(),
+                        content().json("""
+                                {"id": 2, "username": "j.walker"}""", true)
+                );
+        this.mockMvc.perform(get("/api/users/2")).andExpect(status().isOk());
+        this.mockMvc.perform(get("/api/users/5")).andExpect(status().isNotFound());
+        this.mockMvc.perform(get("/api/users/5")).andExpect(status().isNotFound());
+        this.mockMvc.perform(get("/api/users/cache/stats"))
+                .andExpectAll(
+                        jsonPath("$.hits").value(2),
+                        jsonPath("$.misses").value(2),
+                        jsonPath("$.size").value(2)
+                );
+
+        this.mockMvc.perform(post("/api/users/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"username\": \"j.beam\"}\n"))
+                .andExpect(status().isOk());
+        this.mockMvc.perform(get("/api/users/5"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.username").value("j.beam")
+                );
+        // запись сбросила только новый id, остальные остались в кэше
+        this.mockMvc.perform(get("/api/users/2")).andExpect(status().isOk());
+        this.mockMvc.perform(get("/api/users/cache/stats"))
+                .andExpectAll(
+                        jsonPath("$.hits").value(3),
+                        jsonPath("$.misses").value(3)
+                );
+    }
+}